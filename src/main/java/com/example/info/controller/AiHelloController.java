@@ -2,22 +2,21 @@ package com.example.info.controller;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.ai.chat.client.ChatClient;
+import com.example.info.service.LlmGateway;
 
 @RestController
 public class AiHelloController {
 
-    private final ChatClient.Builder chatClientBuilder;
+    private final LlmGateway llmGateway;
 
-    public AiHelloController(ChatClient.Builder chatClientBuilder) {
-        this.chatClientBuilder = chatClientBuilder;
+    public AiHelloController(LlmGateway llmGateway) {
+        this.llmGateway = llmGateway;
     }
 
     @GetMapping("/ai-hello")
     public String aiHello() {
-        var chat = chatClientBuilder.build();
         String userPrompt = "Tell me a joke";
-        String assistantReply = chat.prompt(userPrompt).call().content();
+        String assistantReply = llmGateway.call("hello", userPrompt);
         return "Spring AI Hello World!\nUSER: " + userPrompt + "\nASSISTANT: " + assistantReply;
     }
 }
\ No newline at end of file
@@ -3,9 +3,15 @@ package com.example.info.controller;
 import com.example.info.model.GeneratedContent;
 import com.example.info.service.ContentGenerationService;
 import com.example.info.repository.GeneratedContentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -16,6 +22,9 @@ public class ContentGenerationController {
     private final ContentGenerationService contentGenerationService;
     private final GeneratedContentRepository contentRepository;
 
+    @Value("${content.stream.timeout.ms:180000}")
+    private long streamTimeoutMs;
+
     public ContentGenerationController(
             ContentGenerationService contentGenerationService,
             GeneratedContentRepository contentRepository) {
@@ -26,17 +35,48 @@ public class ContentGenerationController {
     @PostMapping("/generate")
     public ResponseEntity<?> generateContent(@RequestBody ContentGenerationRequest request) {
         try {
-            GeneratedContent content = contentGenerationService.generateContent(request.getTopic());
+            GeneratedContent content = contentGenerationService.generateContent(request.getTopic(), request.getMode());
             return ResponseEntity.ok(content);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Content generation failed: " + e.getMessage()));
         }
     }
 
+    // Streams the article over SSE while it is generated; the final "complete" event holds the
+    // saved content. Event data is JSON so chunks containing newlines survive SSE framing.
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateContentStream(@RequestBody ContentGenerationRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Disposable subscription = contentGenerationService.generateContentStream(request.getTopic())
+                .subscribe(event -> send(emitter, event.getType(), event.getType().equals("chunk")
+                                ? Map.of("text", event.getData()) : event.getData()),
+                        error -> {
+                            try {
+                                send(emitter, "error", new ErrorResponse("Content generation failed: " + error.getMessage()));
+                                emitter.complete();
+                            } catch (RuntimeException e) {
+                                emitter.completeWithError(error);
+                            }
+                        },
+                        emitter::complete);
+        // Stop generating once the client has gone away
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new IllegalStateException("Client disconnected", e);
+        }
+    }
+
     @PostMapping("/regenerate/{id}")
     public ResponseEntity<?> regenerateContent(@PathVariable Long id, @RequestBody ContentGenerationRequest request) {
         try {
-            GeneratedContent content = contentGenerationService.regenerateContent(id, request.getTopic());
+            GeneratedContent content = contentGenerationService.regenerateContent(id, request.getTopic(), request.getMode());
             return ResponseEntity.ok(content);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(new ErrorResponse("Content regeneration failed: " + e.getMessage()));
@@ -100,9 +140,13 @@ public class ContentGenerationController {
     // Request/Response DTOs
     public static class ContentGenerationRequest {
         private String topic;
+        // "single" (default) or "sectioned"; the streaming endpoint always streams a single completion
+        private String mode;
 
         public String getTopic() { return topic; }
         public void setTopic(String topic) { this.topic = topic; }
+        public String getMode() { return mode; }
+        public void setMode(String mode) { this.mode = mode; }
     }
 
     public static class EditContentRequest {
@@ -32,6 +32,10 @@ public class ResearchQuery {
 
     private LocalDateTime createdAt;
 
+    // The AI call failed and this is the fallback answer; it is returned but never stored
+    @Transient
+    private boolean degraded;
+
     public ResearchQuery() {
         this.createdAt = LocalDateTime.now();
     }
@@ -57,4 +61,6 @@ public class ResearchQuery {
     public void setRelatedTopics(List<String> relatedTopics) { this.relatedTopics = relatedTopics; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public boolean isDegraded() { return degraded; }
+    public void setDegraded(boolean degraded) { this.degraded = degraded; }
 }
\ No newline at end of file
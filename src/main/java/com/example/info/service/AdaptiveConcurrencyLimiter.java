@@ -0,0 +1,68 @@
+package com.example.info.service;
+
+import java.util.concurrent.TimeUnit;
+
+// AIMD concurrency limit: each call that completes in time while the limit is in use grows the
+// limit by 1/limit (about +1 per round of calls); a failure, timeout or slow call multiplies it by
+// the backoff ratio. Drops from calls that started before the last decrease are not counted again,
+// so one burst of failures shrinks the limit once rather than once per failed call.
+public class AdaptiveConcurrencyLimiter {
+
+    public enum Outcome { SUCCESS, DROPPED, IGNORED }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseAt = System.nanoTime();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMs, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    // Waits up to timeoutMs for a slot; false means the caller should shed the call
+    public synchronized boolean acquire(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        inFlight++;
+        return true;
+    }
+
+    public synchronized void release(long startNanos, Outcome outcome) {
+        boolean saturated = inFlight >= limit / 2;
+        inFlight--;
+        long latency = System.nanoTime() - startNanos;
+        if (outcome == Outcome.DROPPED || (outcome == Outcome.SUCCESS && latency > latencyThresholdNanos)) {
+            if (startNanos - lastDecreaseAt > 0) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecreaseAt = System.nanoTime();
+            }
+        } else if (outcome == Outcome.SUCCESS && saturated) {
+            // Only grow while the current limit is actually being used
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+}
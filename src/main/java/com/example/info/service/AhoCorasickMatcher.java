@@ -0,0 +1,149 @@
+package com.example.info.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+// Multi-pattern keyword matcher (Aho-Corasick): finds every keyword in a text in one left-to-right
+// pass, however many keywords there are. Each keyword belongs to a group numbered 0-63 and a match
+// reports the set of groups seen as a bit mask. Matching is case-insensitive and a keyword only
+// matches at the start of a word, so "ai" matches "AI-driven" but not "email". Immutable once built.
+public class AhoCorasickMatcher {
+
+    public static final int MAX_GROUPS = 64;
+
+    // Per state: sorted transition characters and their target states
+    private final char[][] transitionChars;
+    private final int[][] transitionTargets;
+    private final int[] failure;
+    // Per state: groups of the keywords ending here, and those keywords' lengths
+    private final long[][] outputGroups;
+    private final int[][] outputLengths;
+
+    private AhoCorasickMatcher(char[][] transitionChars, int[][] transitionTargets, int[] failure,
+                               long[][] outputGroups, int[][] outputLengths) {
+        this.transitionChars = transitionChars;
+        this.transitionTargets = transitionTargets;
+        this.failure = failure;
+        this.outputGroups = outputGroups;
+        this.outputLengths = outputLengths;
+    }
+
+    // Bit i is set when a keyword of group i occurs in the text
+    public long match(CharSequence text) {
+        long groups = 0;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = Math.max(next, 0);
+            long[] ends = outputGroups[state];
+            for (int k = 0; k < ends.length; k++) {
+                int start = i + 1 - outputLengths[state][k];
+                if (start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1))) {
+                    groups |= ends[k];
+                }
+            }
+        }
+        return groups;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(transitionChars[state], c);
+        return index >= 0 ? transitionTargets[state][index] : -1;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final List<Map<Character, Integer>> trie = new ArrayList<>();
+        private final List<List<long[]>> outputs = new ArrayList<>();
+
+        private Builder() {
+            newState();
+        }
+
+        public Builder add(String keyword, int group) {
+            if (group < 0 || group >= MAX_GROUPS) {
+                throw new IllegalArgumentException("Group must be between 0 and " + (MAX_GROUPS - 1) + ": " + group);
+            }
+            String lower = keyword.toLowerCase(Locale.ROOT);
+            if (lower.isEmpty()) {
+                return this;
+            }
+            int state = 0;
+            for (int i = 0; i < lower.length(); i++) {
+                Integer next = trie.get(state).get(lower.charAt(i));
+                if (next == null) {
+                    next = newState();
+                    trie.get(state).put(lower.charAt(i), next);
+                }
+                state = next;
+            }
+            outputs.get(state).add(new long[]{1L << group, lower.length()});
+            return this;
+        }
+
+        public AhoCorasickMatcher build() {
+            int states = trie.size();
+            int[] failure = new int[states];
+            // Breadth-first, so every state's failure target is finished before its children need it
+            Queue<Integer> queue = new ArrayDeque<>(trie.get(0).values());
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> edge : trie.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = failure[state];
+                    Integer target;
+                    while ((target = trie.get(fallback).get(edge.getKey())) == null && fallback != 0) {
+                        fallback = failure[fallback];
+                    }
+                    failure[child] = target != null && target != child ? target : 0;
+                    // A keyword ending at the failure target also ends here
+                    outputs.get(child).addAll(outputs.get(failure[child]));
+                    queue.add(child);
+                }
+            }
+
+            char[][] transitionChars = new char[states][];
+            int[][] transitionTargets = new int[states][];
+            long[][] outputGroups = new long[states][];
+            int[][] outputLengths = new int[states][];
+            for (int state = 0; state < states; state++) {
+                Character[] chars = trie.get(state).keySet().toArray(new Character[0]);
+                Arrays.sort(chars);
+                transitionChars[state] = new char[chars.length];
+                transitionTargets[state] = new int[chars.length];
+                for (int i = 0; i < chars.length; i++) {
+                    transitionChars[state][i] = chars[i];
+                    transitionTargets[state][i] = trie.get(state).get(chars[i]);
+                }
+                List<long[]> ends = outputs.get(state);
+                outputGroups[state] = new long[ends.size()];
+                outputLengths[state] = new int[ends.size()];
+                for (int i = 0; i < ends.size(); i++) {
+                    outputGroups[state][i] = ends.get(i)[0];
+                    outputLengths[state][i] = (int) ends.get(i)[1];
+                }
+            }
+            return new AhoCorasickMatcher(transitionChars, transitionTargets, failure, outputGroups, outputLengths);
+        }
+
+        private int newState() {
+            trie.add(new HashMap<>());
+            outputs.add(new ArrayList<>());
+            return trie.size() - 1;
+        }
+    }
+}
@@ -3,23 +3,127 @@ package com.example.info.service;
 import com.example.info.model.ResearchQuery;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.ai.chat.client.ChatClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class AiResponseGeneratorService {
 
-    private final ChatClient.Builder chatClient;
+    // Corpora up to this size go to the model as synthesized passages in one prompt; larger ones
+    // are map-reduced. Kept well above scraper.sufficient.tokens, where gathering normally stops.
+    @Value("${research.mapreduce.threshold.tokens:12000}")
+    private int mapReduceThresholdTokens;
+
+    @Value("${research.mapreduce.chunk.tokens:3000}")
+    private int chunkTokens;
+
+    @Value("${research.mapreduce.summary.words:150}")
+    private int summaryWords;
+
+    @Value("${research.mapreduce.parallelism:6}")
+    private int mapParallelism;
+
+    private final LlmGateway llmGateway;
+    private final LlmResponseCache responseCache;
+    private final ContentAnalysisService contentAnalysisService;
+    private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService mapExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AiResponseGeneratorService(LlmGateway llmGateway, LlmResponseCache responseCache,
+                                      ContentAnalysisService contentAnalysisService, MeterRegistry meterRegistry) {
+        this.llmGateway = llmGateway;
+        this.responseCache = responseCache;
+        this.contentAnalysisService = contentAnalysisService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        mapExecutor.shutdownNow();
+    }
+
+    // Picks the generation mode from the size of the scraped corpus. Small corpora keep the single
+    // call over the synthesized passages. Large ones would lose most of their text to the synthesis
+    // budget, so each page (or chunk) is summarised concurrently and the response is generated from
+    // the summaries instead. The corpus pages are already unique, and its synthesized passages are
+    // reused as they are for the single call.
+    public ResearchQuery generateComprehensiveResponse(String topic, ResearchCorpusService.Corpus corpus) {
+        List<String> pages = corpus.pages();
+        int corpusTokens = 0;
+        for (String page : pages) {
+            corpusTokens += TokenEstimator.estimateTokens(page);
+        }
+
+        String mode = corpusTokens > mapReduceThresholdTokens ? "map-reduce" : "single";
+        meterRegistry.counter("research.mode", "mode", mode).increment();
+        meterRegistry.summary("research.corpus.tokens", "mode", mode).record(corpusTokens);
 
-    public AiResponseGeneratorService(ChatClient.Builder chatClient) {
-        this.chatClient = chatClient;
+        if (mode.equals("single")) {
+            long start = System.nanoTime();
+            String synthesizedContent = corpus.synthesizedContent();
+            ResearchQuery result = generate(topic, synthesizedContent, "research");
+            long totalMs = record("single", start);
+            System.out.println(String.format("Research '%s': mode=single corpusTokens=%d promptTokens=%d total=%dms",
+                    topic, corpusTokens, TokenEstimator.estimateTokens(synthesizedContent), totalMs));
+            return result;
+        }
+
+        long start = System.nanoTime();
+        // Each chunk is labelled with the page it came from, so the reduce call can tell one
+        // source's parts from separate sources agreeing with each other
+        List<String> chunks = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        for (int p = 0; p < pages.size(); p++) {
+            List<String> pageChunks = contentAnalysisService.splitIntoChunks(List.of(pages.get(p)), chunkTokens);
+            for (int c = 0; c < pageChunks.size(); c++) {
+                chunks.add(pageChunks.get(c));
+                labels.add(pageChunks.size() == 1
+                        ? corpus.pageUrls().get(p)
+                        : corpus.pageUrls().get(p) + " (part " + (c + 1) + " of " + pageChunks.size() + ")");
+            }
+        }
+        List<String> summaries = summarise(topic, chunks);
+        long mapMs = record("map", start);
+
+        StringBuilder reduceInput = new StringBuilder();
+        for (int i = 0; i < summaries.size(); i++) {
+            if (summaries.get(i) != null) {
+                reduceInput.append("Source: ").append(labels.get(i)).append("\n")
+                        .append(summaries.get(i)).append("\n\n");
+            }
+        }
+        if (reduceInput.isEmpty()) {
+            // Every map call failed; the single-call mode still gives a (truncated) answer
+            return generateComprehensiveResponse(topic, corpus.synthesizedContent());
+        }
+        long reduceStart = System.nanoTime();
+        ResearchQuery result = generate(topic, reduceInput.toString().trim(), "research-reduce");
+        long reduceMs = record("reduce", reduceStart);
+        System.out.println(String.format(
+                "Research '%s': mode=map-reduce corpusTokens=%d chunks=%d summaryTokens=%d map=%dms reduce=%dms",
+                topic, corpusTokens, chunks.size(), TokenEstimator.estimateTokens(reduceInput), mapMs, reduceMs));
+        return result;
     }
 
     public ResearchQuery generateComprehensiveResponse(String topic, String synthesizedContent) {
+        return generate(topic, synthesizedContent, "research");
+    }
+
+    private ResearchQuery generate(String topic, String synthesizedContent, String callSite) {
         String prompt = String.format("""
         Based on the following research content about "%s", create a comprehensive response with:
         
@@ -38,13 +142,73 @@ public class AiResponseGeneratorService {
         """, topic, synthesizedContent);
 
         try {
-            String aiResponse = chatClient.build().prompt(prompt).call().content();
+            String aiResponse = responseCache.get(prompt,
+                    () -> llmGateway.call(callSite, prompt),
+                    LlmResponseCache::isJsonObject);
             return parseAiResponse(aiResponse, topic);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             return createFallbackResponse(topic, synthesizedContent);
         }
     }
 
+    // Map stage: one summary per chunk, concurrently. The result lines up with the chunks, with
+    // null for failed and irrelevant ones.
+    private List<String> summarise(String topic, List<String> chunks) {
+        Semaphore permits = new Semaphore(mapParallelism);
+        List<Future<String>> futures = new ArrayList<>();
+        for (String chunk : chunks) {
+            String prompt = createSummaryPrompt(topic, chunk);
+            futures.add(mapExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return responseCache.get(prompt,
+                            () -> llmGateway.call("research-map", prompt),
+                            text -> text != null && !text.isBlank());
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        List<String> summaries = new ArrayList<>();
+        for (Future<String> future : futures) {
+            try {
+                String summary = future.get().trim();
+                summaries.add(summary.regionMatches(true, 0, "Not relevant", 0, 12) ? null : summary);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new CancellationException("Research map stage interrupted");
+            } catch (ExecutionException e) {
+                System.err.println("Source summary failed: " + e.getCause().getMessage());
+                summaries.add(null);
+            }
+        }
+        return summaries;
+    }
+
+    private String createSummaryPrompt(String topic, String source) {
+        return String.format("""
+        Summarise what the following source says about "%s" in at most %d words.
+        Keep concrete facts, figures, names and dates; leave out anything unrelated to the topic.
+        If the source has nothing relevant, reply with "Not relevant".
+        
+        Source:
+        %s
+        
+        Remember: Return ONLY the summary as plain text.
+        """, topic, summaryWords, source);
+    }
+
+    private long record(String stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("research.stage").tag("stage", stage).register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(elapsed);
+    }
+
     private ResearchQuery parseAiResponse(String aiResponse, String topic) {
         ResearchQuery result = new ResearchQuery();
         result.setTopic(topic);
@@ -96,6 +260,7 @@ public class AiResponseGeneratorService {
         ResearchQuery result = new ResearchQuery();
         result.setTopic(topic);
         result.setTitle(topic);
+        result.setDegraded(true);
         result.setComprehensiveResponse(content.length() > 500 ? content.substring(0, 500) + "..." : content);
         result.setSummary("Research results for: " + topic);
         result.setKeyPoints(Arrays.asList("Research conducted", "Content analyzed", "Information synthesized"));
@@ -1,41 +1,433 @@
 package com.example.info.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.channels.ClosedByInterruptException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ContentAnalysisService {
 
-    public List<String> extractContentFromUrls(List<String> urls) {
-        List<String> contents = new ArrayList<>();
+    private static final long PERMIT_SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
 
-        for (String url : urls) {
+    @Value("${scraper.timeout.ms:5000}")
+    private int timeoutMs;
+
+    @Value("${scraper.deadline.ms:8000}")
+    private long deadlineMs;
+
+    @Value("${scraper.max.concurrent.requests:16}")
+    private int maxConcurrentRequests;
+
+    @Value("${scraper.max.requests.per.host:2}")
+    private int maxRequestsPerHost;
+
+    @Value("${scraper.max.body.kb:1024}")
+    private int maxBodyKb;
+
+    @Value("${scraper.extraction.mode:readability}")
+    private String extractionMode;
+
+    // Generation may start once this many tokens of unique content are in, from at least min.pages pages
+    @Value("${scraper.sufficient.tokens:6000}")
+    private int sufficientTokens;
+
+    @Value("${scraper.sufficient.min.pages:3}")
+    private int sufficientMinPages;
+
+    @Value("${synthesis.token.budget:3000}")
+    private int tokenBudget;
+
+    @Value("${scraper.politeness.idle.minutes:10}")
+    private long idleMinutes;
+
+    // Each page fetch runs on its own virtual thread; the semaphores below do the actual bounding
+    private final ExecutorService scraperExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, HostPermits> hostPermits = new ConcurrentHashMap<>();
+    private final AtomicLong lastPermitSweep = new AtomicLong(System.nanoTime());
+    private Semaphore globalPermits;
+    private ContentExtractor contentExtractor;
+
+    private final ScrapedPageCache pageCache;
+    private final PassageRanker passageRanker;
+    private final NearDuplicateFilter nearDuplicateFilter;
+    private final PolitenessScheduler politenessScheduler;
+    private final HostLatencyTracker latencyTracker;
+
+    public ContentAnalysisService(ScrapedPageCache pageCache,
+                                  PassageRanker passageRanker,
+                                  NearDuplicateFilter nearDuplicateFilter,
+                                  PolitenessScheduler politenessScheduler,
+                                  HostLatencyTracker latencyTracker) {
+        this.pageCache = pageCache;
+        this.passageRanker = passageRanker;
+        this.nearDuplicateFilter = nearDuplicateFilter;
+        this.politenessScheduler = politenessScheduler;
+        this.latencyTracker = latencyTracker;
+    }
+
+    @PostConstruct
+    void init() {
+        globalPermits = new Semaphore(maxConcurrentRequests);
+        contentExtractor = "selector".equalsIgnoreCase(extractionMode)
+                ? new SelectorContentExtractor()
+                : new ReadabilityContentExtractor();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scraperExecutor.shutdownNow();
+    }
+
+    // Fetches every URL at once and completes as soon as the unique pages gathered so far are
+    // enough to generate from, instead of waiting for the slowest page. Near-duplicates are dropped
+    // as pages arrive. Fetches still running at that point are left to finish on their own (they
+    // are bounded by the same deadline) so their pages still reach the page cache.
+    public CompletableFuture<GatheredPages> gatherContent(List<String> urls) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMs);
+        Gatherer gatherer = new Gatherer(urls);
+        for (int i = 0; i < urls.size(); i++) {
+            int index = i;
+            String url = urls.get(i);
+            CompletableFuture.supplyAsync(() -> scrape(url, deadline), scraperExecutor)
+                    .whenComplete((content, error) -> gatherer.arrived(index, error == null ? content : null));
+        }
+        CompletableFuture.delayedExecutor(remainingNanos(deadline), TimeUnit.NANOSECONDS)
+                .execute(gatherer::finish);
+        return gatherer.result;
+    }
+
+    // pages.get(i) was scraped from urls.get(i); both in search result order
+    public record GatheredPages(List<String> urls, List<String> pages) {
+    }
+
+    private class Gatherer {
+        private final CompletableFuture<GatheredPages> result = new CompletableFuture<>();
+        private final NearDuplicateFilter.Incremental dedup = nearDuplicateFilter.incremental();
+        private final List<String> urls;
+        // Unique pages by SERP position
+        private final String[] pages;
+        private int pending;
+        private int uniquePages;
+        private int uniqueTokens;
+
+        Gatherer(List<String> urls) {
+            this.urls = urls;
+            this.pages = new String[urls.size()];
+            this.pending = urls.size();
+            if (urls.isEmpty()) {
+                finish();
+            }
+        }
+
+        void arrived(int index, String content) {
+            boolean unique = content != null && !result.isDone() && dedup.offer(content);
+            synchronized (this) {
+                pending--;
+                if (unique) {
+                    pages[index] = content;
+                    uniquePages++;
+                    uniqueTokens += TokenEstimator.estimateTokens(content);
+                }
+                if (pending == 0 || (uniqueTokens >= sufficientTokens && uniquePages >= sufficientMinPages)) {
+                    finish();
+                }
+            }
+        }
+
+        synchronized void finish() {
+            if (result.isDone()) {
+                return;
+            }
+            List<String> gatheredUrls = new ArrayList<>(uniquePages);
+            List<String> gathered = new ArrayList<>(uniquePages);
+            for (int i = 0; i < pages.length; i++) {
+                if (pages[i] != null) {
+                    gatheredUrls.add(urls.get(i));
+                    gathered.add(pages[i]);
+                }
+            }
+            dedup.finish();
+            result.complete(new GatheredPages(List.copyOf(gatheredUrls), List.copyOf(gathered)));
+        }
+    }
+
+    private String scrape(String url, long deadline) {
+        // Fresh cache hits cost no network at all, so they skip the rate limits and permits
+        ScrapedPageCache.CachedPage cached = pageCache.get(url);
+        if (cached != null && pageCache.isFresh(cached)) {
+            pageCache.recordHit();
+            return cached.getText();
+        }
+
+        String host = hostOf(url);
+        Semaphore hostPermit = hostPermitFor(host);
+        try {
+            if (!latencyTracker.isHealthy(host)) {
+                System.err.println("Skipping unhealthy host: " + url);
+                return null;
+            }
+            if (!politenessScheduler.isAllowed(url)) {
+                System.err.println("Disallowed by robots.txt: " + url);
+                return null;
+            }
+            if (!politenessScheduler.acquire(host, deadline)) {
+                return null;
+            }
+            if (!globalPermits.tryAcquire(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                return null;
+            }
             try {
-                Document doc = Jsoup.connect(url)
-                        .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
-                        .timeout(5000)
-                        .get();
-
-                String content = doc.select("p, h1, h2, h3").text();
-                if (content.length() > 100) {
-                    contents.add(content);
+                if (!hostPermit.tryAcquire(remainingNanos(deadline), TimeUnit.NANOSECONDS)) {
+                    return null;
+                }
+                // Per-host timeout from observed latency, but never outliving the overall deadline
+                int hostTimeout = latencyTracker.timeoutFor(host, timeoutMs);
+                int timeout = (int) Math.min(hostTimeout, TimeUnit.NANOSECONDS.toMillis(remainingNanos(deadline)));
+                long start = System.nanoTime();
+                try {
+                    if (timeout <= 0) {
+                        return null;
+                    }
+                    String content = fetchContent(url, host, cached, timeout);
+                    latencyTracker.recordSuccess(host, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return content;
+                } catch (Exception e) {
+                    if (isHostFailure(e, timeout < hostTimeout)) {
+                        latencyTracker.recordFailure(host);
+                    }
+                    throw e;
+                } finally {
+                    hostPermit.release();
                 }
-            } catch (Exception e) {
-                // Skip problematic URLs
-                System.err.println("Failed to scrape: " + url + " - " + e.getMessage());
+            } finally {
+                globalPermits.release();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            // Skip problematic URLs
+            System.err.println("Failed to scrape: " + url + " - " + e.getMessage());
+            return null;
         }
-        return contents;
     }
 
-    public String synthesizeContent(List<String> contents) {
-        StringBuilder combined = new StringBuilder();
-        for (String content : contents) {
-            combined.append(content).append("\n\n");
+    // Hosts idle for idle.minutes with no fetch in flight lose their semaphore, swept at most once
+    // a minute like the politeness state
+    private Semaphore hostPermitFor(String host) {
+        long now = System.nanoTime();
+        long last = lastPermitSweep.get();
+        if (now - last > PERMIT_SWEEP_INTERVAL_NANOS && lastPermitSweep.compareAndSet(last, now)) {
+            long idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+            hostPermits.values().removeIf(permits -> now - permits.lastUsed >= idleNanos
+                    && permits.semaphore.availablePermits() == maxRequestsPerHost);
+        }
+        HostPermits permits = hostPermits.computeIfAbsent(host, h -> new HostPermits(maxRequestsPerHost));
+        permits.lastUsed = now;
+        return permits.semaphore;
+    }
+
+    private String fetchContent(String url, String host, ScrapedPageCache.CachedPage cached, int timeout)
+            throws Exception {
+        Connection connection = Jsoup.connect(url)
+                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
+                .timeout(timeout)
+                .maxBodySize(maxBodyKb * 1024)
+                .ignoreHttpErrors(true);
+        if (cached != null) {
+            // Stale entry: ask the server whether it changed instead of downloading it again
+            if (cached.getEtag() != null) {
+                connection.header("If-None-Match", cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                connection.header("If-Modified-Since", cached.getLastModified());
+            }
+        }
+
+        Connection.Response response = connection.execute();
+        if (response.statusCode() == 304 && cached != null) {
+            pageCache.markRevalidated(cached);
+            return cached.getText();
+        }
+        if (response.statusCode() == 429 || response.statusCode() == 503) {
+            politenessScheduler.backOff(host, response.header("Retry-After"));
+        }
+        if (response.statusCode() >= 400) {
+            discardBody(response, url);
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+
+        // Headers are in but the body has not been read yet: reject non-HTML before downloading it
+        if (!isHtml(response.contentType())) {
+            System.err.println("Skipping non-HTML content: " + url + " (" + response.contentType() + ")");
+            discardBody(response, url);
+            return null;
+        }
+
+        // The body read stops at maxBodySize, so the buffered bytes and the DOM built from them
+        // have a fixed upper bound per page no matter how large the page really is
+        pageCache.recordMiss();
+        Document doc = response.parse();
+        String content = contentExtractor.extract(doc);
+        if (content.length() <= 100) {
+            return null;
+        }
+        // Cache the whole extracted text (maxBodySize already bounds it); the synthesis budget is
+        // applied when the pages are combined, so map-reduce and larger budgets still see all of it
+        pageCache.put(url, content, response.header("ETag"), response.header("Last-Modified"));
+        return content;
+    }
+
+    // For responses whose body is never read: closing the stream releases the connection now
+    // instead of whenever the response happens to be collected
+    private static void discardBody(Connection.Response response, String url) {
+        try {
+            response.bodyStream().close();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to close response for: " + url + " - " + e.getMessage());
+        }
+    }
+
+    // A 404 is the page's problem; server errors and throttling are the host's
+    // Only failures the host is responsible for count against it: not our own cancellation, and
+    // not a timeout the scrape deadline had cut below the host's adaptive timeout
+    private static boolean isHostFailure(Exception e, boolean deadlineTruncated) {
+        if (Thread.currentThread().isInterrupted() || e instanceof ClosedByInterruptException) {
+            return false;
+        }
+        if (e instanceof SocketTimeoutException) {
+            return !deadlineTruncated;
+        }
+        return !(e instanceof HttpStatusException status) || isHostFailure(status.getStatusCode());
+    }
+
+    private static boolean isHostFailure(int statusCode) {
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+    private static boolean isHtml(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/html") || type.startsWith("application/xhtml+xml");
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : url;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    // Keeps only the passages most relevant to the topic before spending the token budget on them.
+    // The pages must already be unique, as gatherContent returns them.
+    public String synthesizeContent(String topic, List<String> uniquePages) {
+        return synthesizeContent(passageRanker.selectPassages(topic, uniquePages), tokenBudget);
+    }
+
+    // Splits each page into pieces of at most chunkTokens, cutting at word boundaries
+    public List<String> splitIntoChunks(List<String> pages, int chunkTokens) {
+        int chunkChars = TokenEstimator.charsForTokens(chunkTokens);
+        List<String> chunks = new ArrayList<>();
+        for (String page : pages) {
+            int start = 0;
+            while (page.length() - start > chunkChars) {
+                int end = start + wordBoundary(page.substring(start, start + chunkChars + 1), chunkChars);
+                chunks.add(page.substring(start, end).trim());
+                start = end;
+            }
+            if (start < page.length()) {
+                chunks.add(page.substring(start).trim());
+            }
+        }
+        chunks.removeIf(String::isEmpty);
+        return chunks;
+    }
+
+    public String synthesizeContent(List<String> contents, int budgetTokens) {
+        int[] shares = allocateFairShares(contents, TokenEstimator.charsForTokens(budgetTokens));
+
+        int capacity = 0;
+        for (int share : shares) {
+            capacity += share + 2;
+        }
+
+        // Append only each source's share straight from the page text, never a full copy of the corpus
+        StringBuilder combined = new StringBuilder(capacity);
+        for (int i = 0; i < contents.size(); i++) {
+            if (shares[i] == 0) {
+                continue;
+            }
+            String content = contents.get(i);
+            int end = shares[i] < content.length() ? wordBoundary(content, shares[i]) : content.length();
+            combined.append(content, 0, end).append("\n\n");
         }
         return combined.toString().trim();
     }
-}
\ No newline at end of file
+
+    // Max-min fair split of the character budget: short sources keep all their text and
+    // whatever they leave unused is shared among the longer ones.
+    static int[] allocateFairShares(List<String> contents, int budgetChars) {
+        int count = contents.size();
+        Integer[] bySize = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, Comparator.comparingInt(i -> contents.get(i).length()));
+
+        int[] shares = new int[count];
+        int remaining = budgetChars;
+        for (int k = 0; k < count && remaining > 0; k++) {
+            int index = bySize[k];
+            int share = Math.min(contents.get(index).length(), remaining / (count - k));
+            shares[index] = share;
+            remaining -= share;
+        }
+        return shares;
+    }
+
+    private static int wordBoundary(String text, int limit) {
+        int cut = limit;
+        while (cut > limit / 2 && !Character.isWhitespace(text.charAt(cut))) {
+            cut--;
+        }
+        return cut > limit / 2 ? cut : limit;
+    }
+
+    private static class HostPermits {
+        private final Semaphore semaphore;
+        private volatile long lastUsed = System.nanoTime();
+
+        HostPermits(int permits) {
+            this.semaphore = new Semaphore(permits);
+        }
+    }
+}
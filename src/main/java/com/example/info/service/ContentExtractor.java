@@ -0,0 +1,9 @@
+package com.example.info.service;
+
+import org.jsoup.nodes.Document;
+
+// Turns a fetched page into the plain text that is handed to synthesis
+public interface ContentExtractor {
+
+    String extract(Document doc);
+}
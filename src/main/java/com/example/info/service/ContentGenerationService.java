@@ -2,68 +2,242 @@ package com.example.info.service;
 
 import com.example.info.model.GeneratedContent;
 import com.example.info.repository.GeneratedContentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class ContentGenerationService {
 
-    private final SerpApiService serpApiService;
-    private final ContentAnalysisService contentAnalysisService;
+    // Sequential LLM calls in the worst case: a sectioned article's outline, its sections, then the
+    // single-call fallback when a section fails
+    private static final int LLM_STAGES = 3;
+
+    // 0 derives it from the pipeline's own deadlines
+    @Value("${pipeline.wait.timeout.ms:0}")
+    private long waitTimeoutMs;
+
+    private final ResearchCorpusService corpusService;
     private final OpenAiService openAiService;
+    private final LlmGateway llmGateway;
     private final GeneratedContentRepository contentRepository;
+    private final SemanticTopicCache topicCache;
+    private final MeterRegistry meterRegistry;
+    private RequestCoalescer<String, GeneratedContent> inFlight;
 
     public ContentGenerationService(
-            SerpApiService serpApiService,
-            ContentAnalysisService contentAnalysisService,
+            ResearchCorpusService corpusService,
             OpenAiService openAiService,
-            GeneratedContentRepository contentRepository) {
-        this.serpApiService = serpApiService;
-        this.contentAnalysisService = contentAnalysisService;
+            LlmGateway llmGateway,
+            GeneratedContentRepository contentRepository,
+            SemanticTopicCache topicCache,
+            MeterRegistry meterRegistry) {
+        this.corpusService = corpusService;
         this.openAiService = openAiService;
+        this.llmGateway = llmGateway;
         this.contentRepository = contentRepository;
+        this.topicCache = topicCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        long waitMs = waitTimeoutMs > 0
+                ? waitTimeoutMs
+                : corpusService.worstCaseGatherMillis() + LLM_STAGES * llmGateway.worstCaseCallMillis();
+        inFlight = new RequestCoalescer<>("content.inflight", Duration.ofMillis(waitMs), meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        inFlight.shutdown();
     }
 
     public GeneratedContent generateContent(String topic) {
-        try {
-            // Step 1: Search the web using SERP API
-            SerpApiService.SerpApiResponse searchResponse = serpApiService.searchWeb(topic);
+        return generateContent(topic, null);
+    }
 
-            // Step 2: Extract URLs and scrape content
-            List<String> urls = searchResponse.getResults().stream()
-                    .map(SerpApiService.SearchResult::getLink)
-                    .collect(Collectors.toList());
+    // mode "sectioned" writes the article section by section in parallel; anything else is single-shot
+    public GeneratedContent generateContent(String topic, String mode) {
+        // Content already generated for a topic that means the same thing is returned as is
+        Optional<GeneratedContent> similar = findSimilar(topic, mode);
+        if (similar.isPresent()) {
+            return similar.get();
+        }
+        // Concurrent requests for the same topic and mode share one pipeline run
+        String key = TopicNormalizer.normalize(topic) + "|" + (isSectioned(mode) ? "sectioned" : "single");
+        return inFlight.execute(key, () -> generate(topic, mode, false));
+    }
 
-            List<String> scrapedContent = contentAnalysisService.extractContentFromUrls(urls);
-            String synthesizedData = contentAnalysisService.synthesizeContent(scrapedContent);
+    // refresh bypasses the LLM response cache, which would otherwise hand back the previous
+    // article for the same research
+    private GeneratedContent generate(String topic, String mode, boolean refresh) {
+        PipelineTimings timings = new PipelineTimings("content", topic);
+        boolean success = false;
+        try {
+            ResearchCorpusService.Corpus research = corpusService.getCorpus(topic, timings);
 
             // Step 3: Generate structured content using OpenAI
-            OpenAiService.ContentGenerationResponse aiResponse =
-                    openAiService.generateContent(topic, synthesizedData);
+            OpenAiService.ContentGenerationResponse aiResponse = timings.time("llm", () ->
+                    isSectioned(mode)
+                            ? openAiService.generateContentSectioned(topic, research.synthesizedContent(), refresh)
+                            : openAiService.generateContent(topic, research.synthesizedContent(), refresh));
+
+            // A cancelled run (every caller gave up) must not store anything for the topic
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Content generation cancelled for topic: " + topic);
+            }
 
             // Step 4: Create and save the generated content
-            GeneratedContent content = new GeneratedContent();
-            content.setTopic(topic);
-            content.setTitle(aiResponse.getTitle());
-            content.setArticleText(aiResponse.getArticleText());
-            content.setSummary(aiResponse.getSummary());
-            content.setDiagramIdeas(aiResponse.getDiagramIdeas());
-            content.setKeyInsights(aiResponse.getKeyInsights());
-            content.setRelatedTopics(aiResponse.getRelatedTopics());
-            content.setSourceUrls(urls);
-            content.setStatus("GENERATED");
-
-            return contentRepository.save(content);
+            GeneratedContent saved = timings.time("save", () -> save(topic, mode, research.urls(), aiResponse));
+            success = true;
+            return saved;
 
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Content generation failed for topic: " + topic + ". Error: " + e.getMessage());
+        } finally {
+            timings.report(meterRegistry, success);
+        }
+    }
+
+    // Same pipeline as generateContent, but the article is emitted chunk by chunk while the model
+    // writes it. The last event carries the saved GeneratedContent.
+    public Flux<GenerationEvent> generateContentStream(String topic) {
+        // Looked up on the calling request thread: a stored entity's lazy collections can only be
+        // loaded while that request's persistence context is open
+        Optional<GeneratedContent> similar = findSimilar(topic, null);
+        if (similar.isPresent()) {
+            return Flux.just(new GenerationEvent("complete", similar.get()));
+        }
+        return generateStream(topic);
+    }
+
+    private Flux<GenerationEvent> generateStream(String topic) {
+        return Flux.defer(() -> {
+            PipelineTimings timings = new PipelineTimings("content-stream", topic);
+            return Mono.fromCallable(() -> corpusService.getCorpus(topic, timings))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(research -> {
+                    StringBuilder aiResponse = new StringBuilder();
+                    StreamingJsonFieldExtractor extractor = new StreamingJsonFieldExtractor();
+                    long llmStart = System.nanoTime();
+                    Flux<GenerationEvent> chunks = openAiService.streamContent(topic, research.synthesizedContent())
+                            .doOnNext(aiResponse::append)
+                            .doFinally(signal -> timings.record("llm", llmStart))
+                            .concatMapIterable(chunk -> {
+                                // Each field is announced as soon as it is complete, ahead of the article
+                                List<GenerationEvent> events = new ArrayList<>();
+                                events.add(new GenerationEvent("chunk", chunk));
+                                for (StreamingJsonFieldExtractor.Field field : extractor.feed(chunk)) {
+                                    events.add(new GenerationEvent("field",
+                                            Map.of("name", field.name(), "value", field.value())));
+                                }
+                                return events;
+                            })
+                            .onErrorResume(e -> {
+                                // Whatever arrived is still parsed, falling back like the blocking call
+                                System.err.println("AI stream failed: " + e.getMessage());
+                                return Flux.empty();
+                            });
+                    Mono<GenerationEvent> saved = Mono.fromCallable(() -> new GenerationEvent("complete",
+                                    timings.time("save", () -> save(topic, null, research.urls(),
+                                            openAiService.completeStreamedContent(topic, research.synthesizedContent(),
+                                                    aiResponse.toString(), extractor)))))
+                            .subscribeOn(Schedulers.boundedElastic());
+                    return Flux.concat(Mono.just(new GenerationEvent("status", "generating")), chunks, saved);
+                })
+                .startWith(new GenerationEvent("status", "researching"))
+                .doFinally(signal -> timings.report(meterRegistry, signal == SignalType.ON_COMPLETE));
+        });
+    }
+
+    // A fallback article is returned unsaved, so the topic is tried again on the next request
+    // instead of being served the fallback from then on
+    private GeneratedContent save(String topic, String mode, List<String> urls,
+                                  OpenAiService.ContentGenerationResponse aiResponse) {
+        GeneratedContent content = new GeneratedContent();
+        content.setTopic(topic);
+        content.setTitle(aiResponse.getTitle());
+        content.setArticleText(aiResponse.getArticleText());
+        content.setSummary(aiResponse.getSummary());
+        content.setDiagramIdeas(aiResponse.getDiagramIdeas());
+        content.setKeyInsights(aiResponse.getKeyInsights());
+        content.setRelatedTopics(aiResponse.getRelatedTopics());
+        content.setSourceUrls(new ArrayList<>(urls));
+        if (aiResponse.isDegraded()) {
+            content.setStatus("FALLBACK");
+            return content;
+        }
+        content.setStatus("GENERATED");
+
+        GeneratedContent saved = contentRepository.save(content);
+        topicCache.add(namespaceFor(mode), topic, saved.getId());
+        return saved;
+    }
+
+    private static boolean isSectioned(String mode) {
+        return "sectioned".equalsIgnoreCase(mode);
+    }
+
+    // Single-shot and sectioned articles are indexed separately, so one is never served for the other
+    private static String namespaceFor(String mode) {
+        return isSectioned(mode) ? SemanticTopicCache.CONTENT_SECTIONED : SemanticTopicCache.CONTENT;
+    }
+
+    private Optional<GeneratedContent> findSimilar(String topic, String mode) {
+        String namespace = namespaceFor(mode);
+        Optional<Long> id = topicCache.findSimilar(namespace, topic);
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<GeneratedContent> content = contentRepository.findById(id.get());
+        if (content.isEmpty()) {
+            // Deleted since it was indexed
+            topicCache.remove(namespace, id.get());
         }
+        return content;
     }
 
     public GeneratedContent regenerateContent(Long contentId, String topic) {
-        // Delete existing content and generate new
+        return regenerateContent(contentId, topic, null);
+    }
+
+    public GeneratedContent regenerateContent(Long contentId, String topic, String mode) {
+        // Delete existing content and generate new, without looking for a similar topic (it would
+        // find the same content again). The research corpus is reused while fresh; the writing is
+        // redone without the LLM response cache.
         contentRepository.deleteById(contentId);
-        return generateContent(topic);
+        topicCache.remove(SemanticTopicCache.CONTENT, contentId);
+        topicCache.remove(SemanticTopicCache.CONTENT_SECTIONED, contentId);
+        return generate(topic, mode, true);
+    }
+
+    // One server-sent event: "status", "chunk" (raw model output), "field" (a top-level field of the
+    // response as soon as it is complete) or "complete" (saved content)
+    public static class GenerationEvent {
+        private final String type;
+        private final Object data;
+
+        public GenerationEvent(String type, Object data) {
+            this.type = type;
+            this.data = data;
+        }
+
+        public String getType() { return type; }
+        public Object getData() { return data; }
     }
 }
@@ -0,0 +1,313 @@
+package com.example.info.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Append-only store for extracted page text, kept off-heap in memory-mapped segment files.
+// Records are [magic][length][key hash][UTF-8 bytes]; a length of -1 is a tombstone. Reads hand
+// out read-only slices of the mapping, so page text is only copied onto the heap when a caller
+// actually decodes it. Segments that are mostly dead are compacted in the background.
+@Service
+public class CorpusSegmentStore {
+
+    private static final int MAGIC = 0xC0DE5E61;
+    private static final int HEADER_BYTES = 16;
+    private static final int TOMBSTONE = -1;
+
+    @Value("${corpus.store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${corpus.store.path:./scrape-cache/corpus}")
+    private String storePath;
+
+    @Value("${corpus.store.segment.mb:64}")
+    private int segmentMb;
+
+    @Value("${corpus.store.compaction.dead.ratio:0.5}")
+    private double compactionDeadRatio;
+
+    @Value("${corpus.store.compaction.interval.seconds:300}")
+    private long compactionIntervalSeconds;
+
+    // Key hash -> (segment id << 32 | record offset)
+    private final Map<Long, Long> index = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "corpus-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Path directory;
+    private Segment active;
+
+    @PostConstruct
+    void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(storePath);
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().matches("segment-\\d+\\.dat"))
+                    .sorted()
+                    .toList();
+        }
+        // Replay in segment order so later records and tombstones win
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Segment segment = Segment.map(Integer.parseInt(name.substring(8, name.length() - 4)), file, segmentBytes());
+            segments.put(segment.id, segment);
+            recover(segment);
+        }
+        active = segments.isEmpty() ? newSegment(1) : segments.lastEntry().getValue();
+
+        compactor.scheduleWithFixedDelay(this::compact,
+                compactionIntervalSeconds, compactionIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void close() {
+        compactor.shutdownNow();
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized boolean put(long keyHash, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (HEADER_BYTES + bytes.length > segmentBytes()) {
+            return false;
+        }
+        try {
+            long location = append(keyHash, bytes, bytes.length);
+            replaceLocation(keyHash, location);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Corpus store write failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized void remove(long keyHash) {
+        Long previous = index.remove(keyHash);
+        if (previous == null) {
+            return;
+        }
+        releaseLocation(previous);
+        try {
+            append(keyHash, null, TOMBSTONE);
+        } catch (IOException e) {
+            System.err.println("Corpus store write failed: " + e.getMessage());
+        }
+    }
+
+    // Zero-copy view of the stored UTF-8 bytes, or null if the key is unknown
+    public ByteBuffer read(long keyHash) {
+        // A concurrent compaction may move the record between the index lookup and the segment lookup
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Long location = index.get(keyHash);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get((int) (location >>> 32));
+            if (segment == null) {
+                continue;
+            }
+            int offset = (int) (long) location;
+            int length = segment.buffer.getInt(offset + 4);
+            return segment.buffer.slice(offset + HEADER_BYTES, length).asReadOnlyBuffer();
+        }
+        return null;
+    }
+
+    // UTF-8 length of the stored text, or 0 if the key is unknown
+    public int textBytes(long keyHash) {
+        ByteBuffer bytes = read(keyHash);
+        return bytes != null ? bytes.remaining() : 0;
+    }
+
+    public String readText(long keyHash) {
+        ByteBuffer bytes = read(keyHash);
+        return bytes != null ? StandardCharsets.UTF_8.decode(bytes).toString() : null;
+    }
+
+    private long append(long keyHash, byte[] bytes, int length) throws IOException {
+        int recordBytes = HEADER_BYTES + Math.max(0, length);
+        if (active.writePosition + recordBytes > segmentBytes()) {
+            active = newSegment(active.id + 1);
+        }
+        int offset = active.writePosition;
+        MappedByteBuffer buffer = active.buffer;
+        // Magic goes in last, so a record torn by a crash ends recovery instead of being replayed
+        buffer.putInt(offset + 4, length);
+        buffer.putLong(offset + 8, keyHash);
+        if (bytes != null) {
+            buffer.put(offset + HEADER_BYTES, bytes);
+        }
+        buffer.putInt(offset, MAGIC);
+        active.writePosition += recordBytes;
+        if (length != TOMBSTONE) {
+            active.liveBytes.addAndGet(recordBytes);
+        }
+        return ((long) active.id << 32) | offset;
+    }
+
+    private void replaceLocation(long keyHash, long location) {
+        Long previous = index.put(keyHash, location);
+        if (previous != null) {
+            releaseLocation(previous);
+        }
+    }
+
+    private void releaseLocation(long location) {
+        Segment segment = segments.get((int) (location >>> 32));
+        if (segment != null) {
+            int offset = (int) location;
+            segment.liveBytes.addAndGet(-(HEADER_BYTES + segment.buffer.getInt(offset + 4)));
+        }
+    }
+
+    private void recover(Segment segment) {
+        int offset = 0;
+        while (offset + HEADER_BYTES <= segment.size && segment.buffer.getInt(offset) == MAGIC) {
+            int length = segment.buffer.getInt(offset + 4);
+            long keyHash = segment.buffer.getLong(offset + 8);
+            if (length == TOMBSTONE) {
+                Long previous = index.remove(keyHash);
+                if (previous != null) {
+                    releaseLocation(previous);
+                }
+                offset += HEADER_BYTES;
+            } else {
+                if (length < 0 || offset + HEADER_BYTES + length > segment.size) {
+                    break;
+                }
+                segment.liveBytes.addAndGet(HEADER_BYTES + length);
+                replaceLocation(keyHash, ((long) segment.id << 32) | offset);
+                offset += HEADER_BYTES + length;
+            }
+        }
+        segment.writePosition = offset;
+    }
+
+    // Rewrites live records of mostly-dead sealed segments into the active segment, then drops them
+    void compact() {
+        try {
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                synchronized (this) {
+                    if (segment == active || segment.writePosition == 0) {
+                        continue;
+                    }
+                    double live = (double) segment.liveBytes.get() / segment.writePosition;
+                    if (live > 1 - compactionDeadRatio) {
+                        continue;
+                    }
+                    compactSegment(segment);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Corpus compaction failed: " + e.getMessage());
+        }
+    }
+
+    private void compactSegment(Segment segment) throws IOException {
+        // Tombstones only matter while an older segment could still hold the record they shadow
+        boolean olderSegmentsExist = segments.firstKey() < segment.id;
+        int offset = 0;
+        while (offset < segment.writePosition) {
+            int length = segment.buffer.getInt(offset + 4);
+            long keyHash = segment.buffer.getLong(offset + 8);
+            long location = ((long) segment.id << 32) | offset;
+            if (length == TOMBSTONE) {
+                if (olderSegmentsExist && !index.containsKey(keyHash)) {
+                    append(keyHash, null, TOMBSTONE);
+                }
+                offset += HEADER_BYTES;
+                continue;
+            }
+            Long current = index.get(keyHash);
+            if (current != null && current == location) {
+                byte[] bytes = new byte[length];
+                segment.buffer.get(offset + HEADER_BYTES, bytes);
+                index.put(keyHash, append(keyHash, bytes, length));
+            }
+            offset += HEADER_BYTES + length;
+        }
+        segments.remove(segment.id);
+        segment.close();
+        Files.deleteIfExists(segment.path);
+        System.err.println("Compacted corpus segment " + segment.id);
+    }
+
+    private Segment newSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("segment-%08d.dat", id));
+        Segment segment = Segment.map(id, path, segmentBytes());
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private int segmentBytes() {
+        return segmentMb * 1024 * 1024;
+    }
+
+    private static class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int size;
+        private final AtomicLong liveBytes = new AtomicLong();
+        private int writePosition;
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer, int size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.size = size;
+        }
+
+        static Segment map(int id, Path path, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int mappedSize = (int) Math.max(size, channel.size());
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+            return new Segment(id, path, channel, buffer, mappedSize);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close corpus segment " + id + ": " + e.getMessage());
+            }
+        }
+    }
+}
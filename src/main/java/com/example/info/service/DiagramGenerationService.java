@@ -22,13 +22,16 @@ public class DiagramGenerationService {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final MermaidService mermaidService;
+    private final KeywordClassifier keywordClassifier;
 
     public DiagramGenerationService(RestTemplate restTemplate,
                                     ObjectMapper objectMapper,
-                                    MermaidService mermaidService) {
+                                    MermaidService mermaidService,
+                                    KeywordClassifier keywordClassifier) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
         this.mermaidService = mermaidService;
+        this.keywordClassifier = keywordClassifier;
     }
 
     public DiagramResponse generateDiagram(DiagramRequest request) {
@@ -45,20 +48,7 @@ public class DiagramGenerationService {
     }
 
     private DiagramType determineDiagramType(String description) {
-        String lower = description.toLowerCase();
-
-        if (lower.contains("architecture") || lower.contains("system") || lower.contains("component")) {
-            return DiagramType.ARCHITECTURE;
-        } else if (lower.contains("workflow") || lower.contains("process") || lower.contains("flow")) {
-            return DiagramType.FLOWCHART;
-        } else if (lower.contains("timeline") || lower.contains("evolution") || lower.contains("history")) {
-            return DiagramType.TIMELINE;
-        } else if (lower.contains("conceptual") || lower.contains("abstract") || lower.contains("artistic")) {
-            return DiagramType.CONCEPTUAL;
-        } else if (lower.contains("professional") || lower.contains("business") || lower.contains("presentation")) {
-            return DiagramType.PROFESSIONAL;
-        }
-        return DiagramType.MERMAID;
+        return DiagramType.valueOf(keywordClassifier.classify(KeywordClassifier.DIAGRAM_TYPE, description).label());
     }
 
     // DALL-E Integration for AI-Generated Diagrams
@@ -0,0 +1,170 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+// In-process TTL cache with single-flight loading: while a value is being loaded, concurrent
+// callers for the same key wait for that one load instead of starting their own. Failed loads
+// are not cached. When the cache grows past maxEntries the least recently used entries go first.
+// Publishes <name>.hits, .misses, .coalesced, .saved.calls, .size and .hit.ratio metrics.
+public class ExpiringCache<K, V> {
+
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter savedCalls;
+
+    public ExpiringCache(String name, Duration ttl, int maxEntries, MeterRegistry meterRegistry) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.hits = meterRegistry.counter(name + ".hits");
+        this.misses = meterRegistry.counter(name + ".misses");
+        this.coalesced = meterRegistry.counter(name + ".coalesced");
+        this.savedCalls = meterRegistry.counter(name + ".saved.calls");
+        Gauge.builder(name + ".size", entries, Map::size).register(meterRegistry);
+        Gauge.builder(name + ".hit.ratio", this, ExpiringCache::hitRatio).register(meterRegistry);
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        try {
+            return getAsync(key, () -> {
+                try {
+                    return CompletableFuture.completedFuture(loader.get());
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for " + key);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    // The loader runs on the calling thread of whichever caller wins the race for a missing key
+    public CompletableFuture<V> getAsync(K key, Supplier<CompletableFuture<V>> loader) {
+        while (true) {
+            Entry<V> existing = entries.get(key);
+            if (existing != null && !existing.isExpired()) {
+                existing.lastAccess = System.nanoTime();
+                if (existing.future.isDone()) {
+                    hits.increment();
+                } else {
+                    coalesced.increment();
+                }
+                savedCalls.increment();
+                return existing.future;
+            }
+
+            Entry<V> created = new Entry<>();
+            boolean won = existing == null
+                    ? entries.putIfAbsent(key, created) == null
+                    : entries.replace(key, existing, created);
+            if (!won) {
+                continue;
+            }
+
+            misses.increment();
+            evictIfNeeded();
+            CompletableFuture<V> loading;
+            try {
+                loading = loader.get();
+            } catch (RuntimeException e) {
+                loading = CompletableFuture.failedFuture(e);
+            }
+            loading.whenComplete((value, error) -> {
+                if (error != null) {
+                    entries.remove(key, created);
+                    created.future.completeExceptionally(error);
+                } else {
+                    created.expiresAt = System.nanoTime() + ttl.toNanos();
+                    created.future.complete(value);
+                }
+            });
+            return created.future;
+        }
+    }
+
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || entry.isExpired() || !entry.future.isDone() || entry.future.isCompletedExceptionally()) {
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        hits.increment();
+        savedCalls.increment();
+        return entry.future.join();
+    }
+
+    public void put(K key, V value) {
+        Entry<V> entry = new Entry<>();
+        entry.expiresAt = System.nanoTime() + ttl.toNanos();
+        entry.future.complete(value);
+        entries.put(key, entry);
+        evictIfNeeded();
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    private void evictIfNeeded() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        entries.entrySet().removeIf(entry -> entry.getValue().isExpired());
+        int excess = entries.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        // Evict a little more than needed so the scan isn't repeated on every insert
+        List<Map.Entry<K, Entry<V>>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.removeIf(entry -> !entry.getValue().future.isDone());
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+        int toRemove = Math.min(candidates.size(), excess + maxEntries / 10);
+        for (int i = 0; i < toRemove; i++) {
+            entries.remove(candidates.get(i).getKey(), candidates.get(i).getValue());
+        }
+    }
+
+    private double hitRatio() {
+        double served = hits.count() + coalesced.count();
+        double total = served + misses.count();
+        return total == 0 ? 0 : served / total;
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof RuntimeException runtime ? runtime : new RuntimeException(error);
+    }
+
+    private static class Entry<V> {
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        // Stays "never expires" while loading; set when the load completes
+        private volatile long expiresAt = Long.MAX_VALUE;
+        private volatile long lastAccess = System.nanoTime();
+
+        boolean isExpired() {
+            return expiresAt != Long.MAX_VALUE && System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
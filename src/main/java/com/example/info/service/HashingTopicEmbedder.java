@@ -0,0 +1,47 @@
+package com.example.info.service;
+
+import java.nio.charset.StandardCharsets;
+
+// Deterministic, offline embedding: words and character trigrams of the normalised topic are
+// hashed into a fixed number of buckets. Only catches near-identical wording ("generative ai" vs
+// "generative ai overview"), not synonyms, but needs no network and gives the same vector on
+// every run, which makes it suitable for tests and local development.
+public class HashingTopicEmbedder implements TopicEmbedder {
+
+    private final int dimensions;
+
+    public HashingTopicEmbedder(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public float[] embed(String topic) {
+        float[] vector = new float[dimensions];
+        String normalized = TopicNormalizer.normalize(topic);
+        for (String word : normalized.split(" ")) {
+            if (!word.isEmpty()) {
+                add(vector, "w:" + word, 2);
+            }
+        }
+        String padded = " " + normalized + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            add(vector, "t:" + padded.substring(i, i + 3), 1);
+        }
+        return vector;
+    }
+
+    private void add(float[] vector, String feature, float weight) {
+        int hash = fnv1a(feature);
+        // The sign bit spreads collisions around zero instead of piling them up
+        vector[Math.floorMod(hash, dimensions)] += (hash >>> 31) == 0 ? weight : -weight;
+    }
+
+    private static int fnv1a(String feature) {
+        int hash = 0x811C9DC5;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.info.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Hierarchical navigable small world graph for approximate nearest-neighbour search by cosine
+// similarity. Vectors are normalised on insert and kept in one flat float array; each node carries a
+// long label (e.g. an entity id). Labels can be removed, which hides their nodes from results but
+// keeps them in the graph for navigation. Single writer, many readers.
+public class HnswIndex {
+
+    private static final int MAGIC = 0x484E5357;
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private float[] vectors;
+    private long[] labels;
+    // links[node][layer] = {count, neighbour ids...}
+    private int[][][] links;
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = new float[dimensions * 16];
+        this.labels = new long[16];
+        this.links = new int[16][][];
+    }
+
+    public record Match(long label, float similarity) {
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(float[] vector, long label) {
+        checkDimensions(vector);
+        lock.writeLock().lock();
+        try {
+            int node = allocate(vector, label);
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            links[node] = new int[level + 1][];
+            for (int layer = 0; layer <= level; layer++) {
+                links[node][layer] = new int[capacity(layer) + 1];
+            }
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            float[] query = Arrays.copyOfRange(vectors, node * dimensions, (node + 1) * dimensions);
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > level; layer--) {
+                current = greedyClosest(query, current, layer);
+            }
+            for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+                List<Match> candidates = searchLayer(query, current, efConstruction, layer);
+                int connections = Math.min(m, candidates.size());
+                for (int i = 0; i < connections; i++) {
+                    int neighbour = (int) candidates.get(i).label();
+                    link(node, neighbour, layer);
+                    link(neighbour, node, layer);
+                }
+                current = (int) candidates.get(0).label();
+            }
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Hides every node carrying the label from search results
+    public void remove(long label) {
+        lock.writeLock().lock();
+        try {
+            for (int node = 0; node < size; node++) {
+                if (labels[node] == label) {
+                    labels[node] = REMOVED;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Up to k live labels by descending similarity
+    public List<Match> search(float[] vector, int k, int ef) {
+        checkDimensions(vector);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+            float[] query = normalise(vector.clone());
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                current = greedyClosest(query, current, layer);
+            }
+            List<Match> results = new ArrayList<>();
+            for (Match match : searchLayer(query, current, Math.max(ef, k), 0)) {
+                long label = labels[(int) match.label()];
+                if (label != REMOVED) {
+                    results.add(new Match(label, match.similarity()));
+                    if (results.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(dimensions);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int i = 0; i < size * dimensions; i++) {
+                out.writeFloat(vectors[i]);
+            }
+            for (int node = 0; node < size; node++) {
+                out.writeLong(labels[node]);
+                out.writeInt(links[node].length);
+                for (int[] layer : links[node]) {
+                    out.writeInt(layer[0]);
+                    for (int i = 1; i <= layer[0]; i++) {
+                        out.writeInt(layer[i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static HnswIndex load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an HNSW index: " + file);
+            }
+            HnswIndex index = new HnswIndex(in.readInt(), in.readInt(), in.readInt());
+            int size = in.readInt();
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            index.grow(size);
+            for (int i = 0; i < size * index.dimensions; i++) {
+                index.vectors[i] = in.readFloat();
+            }
+            for (int node = 0; node < size; node++) {
+                index.labels[node] = in.readLong();
+                int levels = in.readInt();
+                index.links[node] = new int[levels][];
+                for (int layer = 0; layer < levels; layer++) {
+                    int[] neighbours = new int[index.capacity(layer) + 1];
+                    neighbours[0] = in.readInt();
+                    for (int i = 1; i <= neighbours[0]; i++) {
+                        neighbours[i] = in.readInt();
+                    }
+                    index.links[node][layer] = neighbours;
+                }
+            }
+            index.size = size;
+            return index;
+        }
+    }
+
+    private int allocate(float[] vector, long label) {
+        grow(size + 1);
+        int node = size++;
+        System.arraycopy(vector, 0, vectors, node * dimensions, dimensions);
+        normalise(vectors, node * dimensions);
+        labels[node] = label;
+        return node;
+    }
+
+    private void grow(int nodes) {
+        if (nodes <= labels.length) {
+            return;
+        }
+        int capacity = Math.max(nodes, labels.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimensions);
+        labels = Arrays.copyOf(labels, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    private int capacity(int layer) {
+        return layer == 0 ? 2 * m : m;
+    }
+
+    // Adds the edge, dropping the least similar neighbour when the node's list is full
+    private void link(int from, int to, int layer) {
+        int[] neighbours = links[from][layer];
+        int count = neighbours[0];
+        for (int i = 1; i <= count; i++) {
+            if (neighbours[i] == to) {
+                return;
+            }
+        }
+        if (count < neighbours.length - 1) {
+            neighbours[count + 1] = to;
+            neighbours[0] = count + 1;
+            return;
+        }
+        int weakest = -1;
+        float weakestSimilarity = similarity(from, to);
+        for (int i = 1; i <= count; i++) {
+            float similarity = similarity(from, neighbours[i]);
+            if (similarity < weakestSimilarity) {
+                weakestSimilarity = similarity;
+                weakest = i;
+            }
+        }
+        if (weakest > 0) {
+            neighbours[weakest] = to;
+        }
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current].length > layer ? links[current][layer] : null;
+            if (neighbours == null) {
+                break;
+            }
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float similarity = similarity(query, neighbours[i]);
+                if (similarity > best) {
+                    best = similarity;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Best-first search of one layer; returns up to ef nodes (ids in Match.label) by descending similarity
+    private List<Match> searchLayer(float[] query, int entry, int ef, int layer) {
+        boolean[] visited = new boolean[size];
+        PriorityQueue<Match> candidates = new PriorityQueue<>(Comparator.comparingDouble(match -> -match.similarity()));
+        PriorityQueue<Match> results = new PriorityQueue<>(Comparator.comparingDouble(Match::similarity));
+        Match start = new Match(entry, similarity(query, entry));
+        visited[entry] = true;
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Match closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[][] nodeLinks = links[(int) closest.label()];
+            if (nodeLinks.length <= layer) {
+                continue;
+            }
+            int[] neighbours = nodeLinks[layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited[neighbour]) {
+                    continue;
+                }
+                visited[neighbour] = true;
+                float similarity = similarity(query, neighbour);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Match match = new Match(neighbour, similarity);
+                    candidates.add(match);
+                    results.add(match);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Match> ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.comparingDouble(match -> -match.similarity()));
+        return ordered;
+    }
+
+    private float similarity(float[] query, int node) {
+        int offset = node * dimensions;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += query[i] * vectors[offset + i];
+        }
+        return dot;
+    }
+
+    private float similarity(int a, int b) {
+        int offsetA = a * dimensions;
+        int offsetB = b * dimensions;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += vectors[offsetA + i] * vectors[offsetB + i];
+        }
+        return dot;
+    }
+
+    private void checkDimensions(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+    }
+
+    private static float[] normalise(float[] vector) {
+        normalise(vector, 0, vector.length);
+        return vector;
+    }
+
+    private void normalise(float[] array, int offset) {
+        normalise(array, offset, dimensions);
+    }
+
+    private static void normalise(float[] array, int offset, int length) {
+        double norm = 0;
+        for (int i = offset; i < offset + length; i++) {
+            norm += array[i] * array[i];
+        }
+        if (norm == 0) {
+            return;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = offset; i < offset + length; i++) {
+            array[i] *= scale;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.info.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Rolling per-host fetch latency and failure rate. Each host keeps a current and a previous time
+// window of an HDR-style log-linear histogram (16 linear buckets, then 8 sub-buckets per power of
+// two, ~12% precision up to 65s), so percentiles reflect the last one to two windows. Hosts not
+// fetched for two windows have nothing left to report and are dropped.
+@Service
+public class HostLatencyTracker {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int MAX_EXPONENT = 16;
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 4) * SUB_BUCKETS;
+
+    @Value("${scraper.timeout.percentile:0.95}")
+    private double percentile;
+
+    @Value("${scraper.timeout.multiplier:1.5}")
+    private double multiplier;
+
+    @Value("${scraper.timeout.min.ms:1000}")
+    private int minTimeoutMs;
+
+    @Value("${scraper.timeout.max.ms:10000}")
+    private int maxTimeoutMs;
+
+    @Value("${scraper.timeout.min.samples:20}")
+    private int minSamples;
+
+    @Value("${scraper.host.max.failure.rate:0.5}")
+    private double maxFailureRate;
+
+    @Value("${scraper.latency.window.seconds:300}")
+    private long windowSeconds;
+
+    private final Map<String, HostStats> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    public void recordSuccess(String host, long latencyMs) {
+        statsFor(host).current().recordLatency(latencyMs);
+    }
+
+    // Failures only count towards the failure rate; a timed-out fetch says nothing about normal latency
+    public void recordFailure(String host) {
+        statsFor(host).current().recordFailure();
+    }
+
+    // Percentile-derived timeout once the host has enough samples, otherwise the configured default
+    public int timeoutFor(String host, int defaultTimeoutMs) {
+        HostStats stats = hosts.get(host);
+        if (stats == null) {
+            return defaultTimeoutMs;
+        }
+        Window current = stats.current();
+        Window previous = stats.previous;
+        long samples = current.latencies.get() + (previous != null ? previous.latencies.get() : 0);
+        if (samples < minSamples) {
+            return defaultTimeoutMs;
+        }
+        long value = valueAtPercentile(current, previous, samples);
+        long timeout = (long) (value * multiplier);
+        return (int) Math.max(minTimeoutMs, Math.min(maxTimeoutMs, timeout));
+    }
+
+    // Hosts failing more than the threshold are skipped; they recover once their failures age
+    // out of both windows
+    public boolean isHealthy(String host) {
+        HostStats stats = hosts.get(host);
+        if (stats == null) {
+            return true;
+        }
+        Window current = stats.current();
+        Window previous = stats.previous;
+        long failures = current.failures.get() + (previous != null ? previous.failures.get() : 0);
+        long samples = failures + current.latencies.get() + (previous != null ? previous.latencies.get() : 0);
+        if (samples < minSamples) {
+            return true;
+        }
+        return (double) failures / samples <= maxFailureRate;
+    }
+
+    private HostStats statsFor(String host) {
+        HostStats stats = hosts.get(host);
+        if (stats == null) {
+            evictIdle();
+            stats = hosts.computeIfAbsent(host, h -> new HostStats());
+        }
+        return stats;
+    }
+
+    // A window older than two window lengths would be discarded on the host's next fetch anyway.
+    // Checked at most once per window, when a new host shows up.
+    private void evictIdle() {
+        long now = System.nanoTime();
+        long window = TimeUnit.SECONDS.toNanos(windowSeconds);
+        long last = lastSweep.get();
+        if (now - last < window || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        hosts.values().removeIf(stats -> now - stats.current.startedAt >= 2 * window);
+    }
+
+    private long valueAtPercentile(Window current, Window previous, long samples) {
+        long target = Math.max(1, (long) Math.ceil(samples * percentile));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += current.counts.get(i) + (previous != null ? previous.counts.get(i) : 0);
+            if (seen >= target) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKETS - 1);
+    }
+
+    static int bucketIndex(long valueMs) {
+        if (valueMs < LINEAR_BUCKETS) {
+            return (int) Math.max(0, valueMs);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(valueMs);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int subBucket = (int) (valueMs >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index + 1;
+        }
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - 3);
+    }
+
+    private class HostStats {
+        private volatile Window current = new Window(System.nanoTime());
+        private volatile Window previous;
+
+        Window current() {
+            Window window = current;
+            if (System.nanoTime() - window.startedAt < TimeUnit.SECONDS.toNanos(windowSeconds)) {
+                return window;
+            }
+            synchronized (this) {
+                if (current == window) {
+                    // After a long idle gap the old window is too stale to keep as "previous"
+                    long now = System.nanoTime();
+                    boolean stale = now - window.startedAt >= 2 * TimeUnit.SECONDS.toNanos(windowSeconds);
+                    previous = stale ? null : window;
+                    current = new Window(now);
+                }
+                return current;
+            }
+        }
+    }
+
+    private static class Window {
+        private final long startedAt;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong latencies = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+
+        Window(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        void recordLatency(long latencyMs) {
+            counts.incrementAndGet(bucketIndex(latencyMs));
+            latencies.incrementAndGet();
+        }
+
+        void recordFailure() {
+            failures.incrementAndGet();
+        }
+    }
+}
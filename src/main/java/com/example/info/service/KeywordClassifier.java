@@ -0,0 +1,144 @@
+package com.example.info.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Keyword routing rules (diagram types, Mermaid templates, topic domains) compiled once at startup
+// from a JSON rule file. Each category's keywords go into one Aho-Corasick automaton, so classifying
+// a text is a single pass over it. Rules are tried in file order and the first one with a matching
+// keyword wins; with no match the category's default rule applies. Rules may carry named lists
+// (e.g. fallback diagram ideas), built once; lists a rule leaves out are taken from the default.
+// Point keyword.rules.location at a file outside the jar to change rules without a new build.
+// A rule file missing a category, or using a label its caller can't act on, fails at startup.
+@Service
+public class KeywordClassifier {
+
+    public static final String DIAGRAM_TYPE = "diagram-type";
+    public static final String MERMAID_TEMPLATE = "mermaid-template";
+    public static final String TOPIC_DOMAIN = "topic-domain";
+
+    private static final String TOPIC_PLACEHOLDER = "{topic}";
+
+    // Labels the callers switch on; categories not listed here accept any label
+    private static final Map<String, Set<String>> KNOWN_LABELS = Map.of(
+            DIAGRAM_TYPE, Arrays.stream(DiagramGenerationService.DiagramType.values())
+                    .map(Enum::name)
+                    .collect(Collectors.toUnmodifiableSet()),
+            MERMAID_TEMPLATE, MermaidService.TEMPLATES);
+
+    @Value("${keyword.rules.location:classpath:keyword-rules.json}")
+    private String rulesLocation;
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private Map<String, Category> categories;
+
+    public KeywordClassifier(ResourceLoader resourceLoader, ObjectMapper objectMapper) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        Resource resource = resourceLoader.getResource(rulesLocation);
+        try (InputStream in = resource.getInputStream()) {
+            categories = compile(objectMapper.readTree(in));
+        }
+        validate();
+    }
+
+    public Rule classify(String category, String text) {
+        Category compiled = categories.get(category);
+        if (compiled == null) {
+            throw new IllegalArgumentException("No keyword rules for category: " + category);
+        }
+        long matched = text == null ? 0 : compiled.matcher().match(text);
+        // Lowest set bit = earliest rule in the file
+        return matched == 0 ? compiled.defaultRule() : compiled.rules().get(Long.numberOfTrailingZeros(matched));
+    }
+
+    public record Rule(String label, Map<String, List<String>> lists, Map<String, Boolean> templated) {
+
+        // The named list, with {topic} filled in where the rule file uses it
+        public List<String> list(String name, String topic) {
+            List<String> items = lists.getOrDefault(name, List.of());
+            if (!templated.getOrDefault(name, false)) {
+                return items;
+            }
+            return items.stream().map(item -> item.replace(TOPIC_PLACEHOLDER, topic)).toList();
+        }
+    }
+
+    private record Category(AhoCorasickMatcher matcher, List<Rule> rules, Rule defaultRule) {
+    }
+
+    private void validate() {
+        for (String category : List.of(DIAGRAM_TYPE, MERMAID_TEMPLATE, TOPIC_DOMAIN)) {
+            if (!categories.containsKey(category)) {
+                throw new IllegalStateException("No keyword rules for category " + category + " in " + rulesLocation);
+            }
+        }
+        KNOWN_LABELS.forEach((name, labels) -> {
+            Category category = categories.get(name);
+            List<Rule> rules = new ArrayList<>(category.rules());
+            rules.add(category.defaultRule());
+            for (Rule rule : rules) {
+                if (!labels.contains(rule.label())) {
+                    throw new IllegalStateException("Unknown " + name + " label '" + rule.label() + "' in "
+                            + rulesLocation + "; expected one of " + labels);
+                }
+            }
+        });
+    }
+
+    private static Map<String, Category> compile(JsonNode root) {
+        Map<String, Category> compiled = new HashMap<>();
+        root.path("categories").fields().forEachRemaining(entry -> {
+            JsonNode category = entry.getValue();
+            Rule defaultRule = rule(category.path("default"), Map.of());
+            JsonNode rules = category.path("rules");
+            if (rules.size() > AhoCorasickMatcher.MAX_GROUPS) {
+                throw new IllegalStateException("Category " + entry.getKey() + " has more than "
+                        + AhoCorasickMatcher.MAX_GROUPS + " rules");
+            }
+            AhoCorasickMatcher.Builder matcher = AhoCorasickMatcher.builder();
+            List<Rule> compiledRules = new ArrayList<>();
+            for (JsonNode rule : rules) {
+                for (JsonNode keyword : rule.path("keywords")) {
+                    matcher.add(keyword.asText(), compiledRules.size());
+                }
+                compiledRules.add(rule(rule, defaultRule.lists()));
+            }
+            compiled.put(entry.getKey(), new Category(matcher.build(), List.copyOf(compiledRules), defaultRule));
+        });
+        return Map.copyOf(compiled);
+    }
+
+    private static Rule rule(JsonNode node, Map<String, List<String>> inherited) {
+        Map<String, List<String>> lists = new LinkedHashMap<>(inherited);
+        node.path("lists").fields().forEachRemaining(list -> {
+            List<String> items = new ArrayList<>();
+            list.getValue().forEach(item -> items.add(item.asText()));
+            lists.put(list.getKey(), List.copyOf(items));
+        });
+        Map<String, Boolean> templated = new HashMap<>();
+        lists.forEach((name, items) ->
+                templated.put(name, items.stream().anyMatch(item -> item.contains(TOPIC_PLACEHOLDER))));
+        return new Rule(node.path("label").asText(), Map.copyOf(lists), Map.copyOf(templated));
+    }
+}
@@ -0,0 +1,317 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.ResourceAccessException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The one place chat completions go through. Owns a single built ChatClient and protects the
+// provider and our request threads from each other:
+//  - an AIMD limiter adapts the number of in-flight calls to observed latency and errors, and
+//    sheds calls that can't get a slot quickly;
+//  - a circuit breaker rejects calls outright while the provider is failing;
+//  - calls are abandoned after llm.call.timeout.ms;
+//  - transient failures are retried with full-jitter backoff under a global retry budget that only
+//    refills as calls are made.
+// Refused and abandoned calls throw LlmUnavailableException so callers serve their fallback at
+// once. An interrupted caller gets a CancellationException instead, which callers pass on rather
+// than turn into a fallback. Latency is recorded per call site as llm.call{site=...}.
+@Service
+public class LlmGateway {
+
+    @Value("${llm.max.concurrent.calls:8}")
+    private int initialConcurrentCalls;
+
+    @Value("${llm.limit.min:1}")
+    private int minConcurrentCalls;
+
+    @Value("${llm.limit.max:32}")
+    private int maxConcurrentCalls;
+
+    @Value("${llm.limit.latency.threshold.ms:30000}")
+    private long latencyThresholdMs;
+
+    @Value("${llm.limit.backoff.ratio:0.7}")
+    private double backoffRatio;
+
+    @Value("${llm.acquire.timeout.ms:2000}")
+    private long acquireTimeoutMs;
+
+    @Value("${llm.call.timeout.ms:45000}")
+    private long callTimeoutMs;
+
+    @Value("${llm.circuit.window:20}")
+    private int circuitWindow;
+
+    @Value("${llm.circuit.min.calls:10}")
+    private int circuitMinCalls;
+
+    @Value("${llm.circuit.failure.rate:0.5}")
+    private double circuitFailureRate;
+
+    @Value("${llm.circuit.open.seconds:30}")
+    private long circuitOpenSeconds;
+
+    @Value("${llm.retry.max.attempts:3}")
+    private int maxAttempts;
+
+    @Value("${llm.retry.base.delay.ms:500}")
+    private long baseDelayMs;
+
+    @Value("${llm.retry.max.delay.ms:8000}")
+    private long maxDelayMs;
+
+    @Value("${llm.retry.budget.ratio:0.1}")
+    private double retryBudgetRatio;
+
+    @Value("${llm.retry.budget.max:10}")
+    private int retryBudgetMax;
+
+    private final ChatClient chatClient;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService callExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Counter retries;
+    private final Counter retriesDenied;
+    private final Counter rejected;
+    private final Counter shortCircuited;
+    private final Counter timeouts;
+
+    private AdaptiveConcurrencyLimiter limiter;
+    private CircuitBreaker circuitBreaker;
+    private RetryBudget retryBudget;
+
+    public LlmGateway(ChatClient.Builder chatClientBuilder, MeterRegistry meterRegistry) {
+        this.chatClient = chatClientBuilder.build();
+        this.meterRegistry = meterRegistry;
+        this.retries = meterRegistry.counter("llm.retries");
+        this.retriesDenied = meterRegistry.counter("llm.retries.denied");
+        this.rejected = meterRegistry.counter("llm.rejected");
+        this.shortCircuited = meterRegistry.counter("llm.short.circuited");
+        this.timeouts = meterRegistry.counter("llm.timeouts");
+    }
+
+    @PostConstruct
+    void init() {
+        limiter = new AdaptiveConcurrencyLimiter(initialConcurrentCalls, minConcurrentCalls, maxConcurrentCalls,
+                latencyThresholdMs, backoffRatio);
+        circuitBreaker = new CircuitBreaker(circuitWindow, circuitMinCalls, circuitFailureRate,
+                TimeUnit.SECONDS.toMillis(circuitOpenSeconds));
+        retryBudget = new RetryBudget(retryBudgetRatio, retryBudgetMax);
+
+        Gauge.builder("llm.limit", limiter, AdaptiveConcurrencyLimiter::limit).register(meterRegistry);
+        Gauge.builder("llm.in.flight", limiter, AdaptiveConcurrencyLimiter::inFlight).register(meterRegistry);
+        Gauge.builder("llm.circuit.open", circuitBreaker, breaker -> breaker.state() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+        Gauge.builder("llm.retry.budget", retryBudget, RetryBudget::balance).register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        callExecutor.shutdownNow();
+    }
+
+    // Longest call() can take before it returns or throws: every attempt waits the full acquire
+    // timeout for a slot and runs to the call timeout, with the longest backoff in between
+    public long worstCaseCallMillis() {
+        return maxAttempts * (acquireTimeoutMs + callTimeoutMs) + (maxAttempts - 1) * maxDelayMs;
+    }
+
+    public String call(String callSite, String prompt) {
+        retryBudget.deposit();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return callOnce(callSite, prompt);
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    throw e;
+                }
+                if (!retryBudget.withdraw()) {
+                    retriesDenied.increment();
+                    throw e;
+                }
+                retries.increment();
+                // No slot is held while backing off, so waiting retries don't block other calls
+                sleep(backoffMs(attempt));
+            }
+        }
+    }
+
+    // Streamed calls hold a slot until the stream ends or is cancelled. They are not retried
+    // (chunks may already be with the client) and their duration isn't a latency signal.
+    public Flux<String> stream(String callSite, String prompt) {
+        return Flux.defer(() -> {
+            long start = admit();
+            return chatClient.prompt(prompt).stream().content()
+                    .doOnComplete(circuitBreaker::onSuccess)
+                    .doOnError(error -> {
+                        if (isTransient(error)) {
+                            circuitBreaker.onFailure();
+                        } else {
+                            circuitBreaker.onIgnored();
+                        }
+                    })
+                    .doOnCancel(circuitBreaker::onIgnored)
+                    .doFinally(signal -> {
+                        limiter.release(start, signal == SignalType.ON_ERROR
+                                ? AdaptiveConcurrencyLimiter.Outcome.DROPPED
+                                : AdaptiveConcurrencyLimiter.Outcome.IGNORED);
+                        timerFor(callSite).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    private String callOnce(String callSite, String prompt) {
+        long start = admit();
+        // Whichever of the call and the timeout finishes first reports to the circuit breaker
+        AtomicBoolean settled = new AtomicBoolean();
+        Future<String> call = callExecutor.submit(() -> {
+            AdaptiveConcurrencyLimiter.Outcome outcome = AdaptiveConcurrencyLimiter.Outcome.IGNORED;
+            try {
+                String content = chatClient.prompt(prompt).call().content();
+                outcome = AdaptiveConcurrencyLimiter.Outcome.SUCCESS;
+                if (settled.compareAndSet(false, true)) {
+                    circuitBreaker.onSuccess();
+                }
+                return content;
+            } catch (RuntimeException e) {
+                boolean transientFailure = isTransient(e);
+                outcome = transientFailure ? AdaptiveConcurrencyLimiter.Outcome.DROPPED : outcome;
+                if (settled.compareAndSet(false, true)) {
+                    if (transientFailure) {
+                        circuitBreaker.onFailure();
+                    } else {
+                        circuitBreaker.onIgnored();
+                    }
+                }
+                throw e;
+            } finally {
+                // The slot is held until the provider call really ends, even if the caller gave up
+                if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(callTimeoutMs)) {
+                    outcome = AdaptiveConcurrencyLimiter.Outcome.DROPPED;
+                }
+                limiter.release(start, outcome);
+                timerFor(callSite).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+
+        try {
+            return call.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            timeouts.increment();
+            if (settled.compareAndSet(false, true)) {
+                circuitBreaker.onFailure();
+            }
+            throw new LlmUnavailableException("LLM call timed out after " + callTimeoutMs + "ms");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the LLM");
+        }
+    }
+
+    // Passes the circuit breaker and takes a limiter slot, or throws; returns the start time
+    private long admit() {
+        if (!circuitBreaker.tryAcquire()) {
+            shortCircuited.increment();
+            throw new LlmUnavailableException("LLM circuit open");
+        }
+        try {
+            if (!limiter.acquire(acquireTimeoutMs)) {
+                circuitBreaker.onIgnored();
+                rejected.increment();
+                throw new LlmUnavailableException("LLM concurrency limit " + limiter.limit() + " reached");
+            }
+        } catch (InterruptedException e) {
+            circuitBreaker.onIgnored();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for an LLM call slot");
+        }
+        return System.nanoTime();
+    }
+
+    // Full jitter: uniformly random up to the exponential ceiling, so retrying callers spread out
+    private long backoffMs(int attempt) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private Timer timerFor(String callSite) {
+        return timers.computeIfAbsent(callSite, site -> Timer.builder("llm.call")
+                .tag("site", site)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientAiException || cause instanceof ResourceAccessException
+                    || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while backing off");
+        }
+    }
+
+    // Each call earns a fraction of a retry, capped, so retries stay a bounded share of traffic
+    static class RetryBudget {
+        private final double ratio;
+        private final double max;
+        private double balance;
+
+        RetryBudget(double ratio, double max) {
+            this.ratio = ratio;
+            this.max = max;
+            this.balance = max;
+        }
+
+        synchronized void deposit() {
+            balance = Math.min(max, balance + ratio);
+        }
+
+        synchronized boolean withdraw() {
+            if (balance < 1) {
+                return false;
+            }
+            balance -= 1;
+            return true;
+        }
+
+        synchronized double balance() {
+            return balance;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Raw chat completion responses keyed by a SHA-256 of model, options and prompt text. The
+// in-memory tier coalesces concurrent identical prompts into one call; the optional disk tier
+// keeps responses across restarts. Callers parse the cached raw text as if it had just arrived.
+@Service
+public class LlmResponseCache {
+
+    private static final String FENCE = "```";
+
+    @Value("${llm.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${llm.cache.ttl.minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${llm.cache.max.entries:200}")
+    private int maxEntries;
+
+    @Value("${llm.cache.persistent.enabled:false}")
+    private boolean persistentEnabled;
+
+    @Value("${llm.cache.path:./llm-cache}")
+    private String cachePath;
+
+    @Value("${llm.cache.persistent.max.size.mb:64}")
+    private long persistentMaxSizeMb;
+
+    // Part of the key, so changing the model or its options never serves stale answers
+    @Value("${spring.ai.openai.chat.options.model:gpt-4o-mini}")
+    private String model;
+
+    @Value("${spring.ai.openai.chat.options.temperature:0.7}")
+    private String temperature;
+
+    private final MeterRegistry meterRegistry;
+    private ExpiringCache<String, String> memory;
+    private Path directory;
+    // Bytes of response files on disk, kept up to date on writes so the directory is only
+    // scanned once it is over the limit
+    private long diskBytes;
+
+    public LlmResponseCache(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        memory = new ExpiringCache<>("llm.cache", Duration.ofMinutes(ttlMinutes), maxEntries, meterRegistry);
+        if (enabled && persistentEnabled) {
+            directory = Paths.get(cachePath);
+            Files.createDirectories(directory);
+            evictFromDisk();
+        }
+    }
+
+    // Returns the cached raw response for the prompt, or makes the call. Responses the caller
+    // can't use (e.g. not JSON) are handed back but not kept.
+    public String get(String prompt, Supplier<String> call, Predicate<String> cacheable) {
+        if (!enabled) {
+            return call.get();
+        }
+        String key = keyFor(prompt);
+        String response = memory.get(key, () -> {
+            String stored = readFromDisk(key);
+            if (stored != null) {
+                return stored;
+            }
+            String fresh = call.get();
+            if (cacheable.test(fresh)) {
+                writeToDisk(key, fresh);
+            }
+            return fresh;
+        });
+        if (!cacheable.test(response)) {
+            memory.invalidate(key);
+        }
+        return response;
+    }
+
+    // With refresh set, the cached response is skipped and replaced by a fresh call's, e.g. when
+    // the user asked for the same prompt to be answered again
+    public String get(String prompt, Supplier<String> call, Predicate<String> cacheable, boolean refresh) {
+        if (!refresh) {
+            return get(prompt, call, cacheable);
+        }
+        String fresh = call.get();
+        if (cacheable.test(fresh)) {
+            put(prompt, fresh);
+        }
+        return fresh;
+    }
+
+    // For streamed calls, which can't go through get(): look up first, store once the stream ends
+    public String getIfPresent(String prompt) {
+        if (!enabled) {
+            return null;
+        }
+        String key = keyFor(prompt);
+        String cached = memory.getIfPresent(key);
+        if (cached == null) {
+            cached = readFromDisk(key);
+            if (cached != null) {
+                memory.put(key, cached);
+            }
+        }
+        return cached;
+    }
+
+    public void put(String prompt, String response) {
+        if (!enabled) {
+            return;
+        }
+        String key = keyFor(prompt);
+        memory.put(key, response);
+        writeToDisk(key, response);
+    }
+
+    // Cheap check for the JSON-object responses both prompts ask for, fenced or not. Looks only at
+    // the first and last non-blank characters, past an optional ```json fence, without copying.
+    public static boolean isJsonObject(String response) {
+        if (response == null) {
+            return false;
+        }
+        int start = skipWhitespace(response, 0);
+        if (response.startsWith(FENCE, start)) {
+            start += FENCE.length();
+            if (response.startsWith("json", start)) {
+                start += 4;
+            }
+            start = skipWhitespace(response, start);
+        }
+        int end = skipWhitespaceBackwards(response, response.length());
+        if (end - FENCE.length() > start && response.startsWith(FENCE, end - FENCE.length())) {
+            end = skipWhitespaceBackwards(response, end - FENCE.length());
+        }
+        return end - start >= 2 && response.charAt(start) == '{' && response.charAt(end - 1) == '}';
+    }
+
+    private static int skipWhitespace(String text, int index) {
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int skipWhitespaceBackwards(String text, int end) {
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private String readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve(key + ".txt");
+        try {
+            if (!Files.exists(file) || isExpired(file)) {
+                return null;
+            }
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, String response) {
+        if (directory == null || response == null) {
+            return;
+        }
+        try {
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.writeString(temp, response, StandardCharsets.UTF_8);
+            Path target = directory.resolve(key + ".txt");
+            long size = Files.size(temp);
+            synchronized (this) {
+                long previous = Files.exists(target) ? Files.size(target) : 0;
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                diskBytes += size - previous;
+                if (diskBytes > persistentMaxSizeMb * 1024 * 1024) {
+                    evictFromDisk();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to persist LLM response: " + e.getMessage());
+        }
+    }
+
+    // Drops expired files, then the oldest ones until the directory fits the size limit
+    private synchronized void evictFromDisk() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(".txt"))
+                    .sorted(Comparator.comparingLong(LlmResponseCache::lastModifiedMillis))
+                    .toList();
+        }
+        long maxBytes = persistentMaxSizeMb * 1024 * 1024;
+        long totalBytes = 0;
+        for (Path file : files) {
+            totalBytes += Files.size(file);
+        }
+        for (Path file : files) {
+            if (totalBytes <= maxBytes && !isExpired(file)) {
+                continue;
+            }
+            totalBytes -= Files.size(file);
+            Files.deleteIfExists(file);
+        }
+        diskBytes = totalBytes;
+    }
+
+    private boolean isExpired(Path file) {
+        return System.currentTimeMillis() - lastModifiedMillis(file) > Duration.ofMinutes(ttlMinutes).toMillis();
+    }
+
+    private String keyFor(String prompt) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((model + "\n" + temperature + "\n").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(prompt.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long lastModifiedMillis(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.info.service;
+
+// The gateway refused or abandoned a call because the provider is overloaded or unhealthy;
+// callers should serve their fallback right away
+public class LlmUnavailableException extends RuntimeException {
+
+    public LlmUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -6,28 +6,36 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.http.*;
 import java.util.Map;
 import java.util.Base64;
+import java.util.Set;
 
 @Service
 public class MermaidService {
 
+    static final String ARCHITECTURE = "architecture";
+    static final String CLASS = "class";
+    static final String SEQUENCE = "sequence";
+    static final String FLOWCHART = "flowchart";
+
+    // Every mermaid-template label the keyword rules may use; KeywordClassifier rejects others at startup
+    static final Set<String> TEMPLATES = Set.of(ARCHITECTURE, CLASS, SEQUENCE, FLOWCHART);
+
     private final RestTemplate restTemplate;
+    private final KeywordClassifier keywordClassifier;
 
-    public MermaidService(RestTemplate restTemplate) {
+    public MermaidService(RestTemplate restTemplate, KeywordClassifier keywordClassifier) {
         this.restTemplate = restTemplate;
+        this.keywordClassifier = keywordClassifier;
     }
 
     public String generateMermaidCode(DiagramRequest request) {
-        String description = request.getDescription().toLowerCase();
-
-        if (description.contains("architecture") || description.contains("system")) {
-            return generateArchitectureDiagram(request);
-        } else if (description.contains("class") || description.contains("object")) {
-            return generateClassDiagram(request);
-        } else if (description.contains("sequence") || description.contains("interaction")) {
-            return generateSequenceDiagram(request);
-        } else {
-            return generateFlowchartCode(request);
-        }
+        String template = keywordClassifier.classify(KeywordClassifier.MERMAID_TEMPLATE, request.getDescription()).label();
+
+        return switch (template) {
+            case ARCHITECTURE -> generateArchitectureDiagram(request);
+            case CLASS -> generateClassDiagram(request);
+            case SEQUENCE -> generateSequenceDiagram(request);
+            default -> generateFlowchartCode(request);
+        };
     }
 
     public String generateFlowchartCode(DiagramRequest request) {
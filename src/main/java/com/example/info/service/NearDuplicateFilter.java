@@ -0,0 +1,206 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+@Service
+public class NearDuplicateFilter {
+
+    private static final int SHINGLE_WORDS = 5;
+    private static final int NUM_HASHES = 128;
+
+    // Fixed seeds so signatures are stable across restarts
+    private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(NUM_HASHES).toArray();
+
+    @Value("${synthesis.dedup.threshold:0.8}")
+    private double similarityThreshold;
+
+    private final Counter pagesRemoved;
+    private final DistributionSummary bytesSaved;
+    private final DistributionSummary tokensSaved;
+
+    public NearDuplicateFilter(MeterRegistry meterRegistry) {
+        this.pagesRemoved = meterRegistry.counter("synthesis.dedup.pages.removed");
+        this.bytesSaved = DistributionSummary.builder("synthesis.dedup.bytes.saved")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.tokensSaved = DistributionSummary.builder("synthesis.dedup.tokens.saved")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    // Keeps the first occurrence of every group of near-identical pages, preserving order
+    public DedupResult filter(List<String> pages) {
+        Incremental dedup = incremental();
+        for (String page : pages) {
+            dedup.offer(page);
+        }
+        return dedup.finish();
+    }
+
+    // For pages that arrive one at a time: each is checked against those kept so far
+    public Incremental incremental() {
+        return new Incremental();
+    }
+
+    public class Incremental {
+        private final List<String> kept = new ArrayList<>();
+        private final List<int[]> keptSignatures = new ArrayList<>();
+        private int removed;
+        private long savedBytes;
+        private int savedTokens;
+
+        private Incremental() {
+        }
+
+        // False (and the page is dropped) if it nearly duplicates a page already kept
+        public boolean offer(String page) {
+            // The signature is the expensive part and needs no lock
+            int[] signature = signature(page);
+            synchronized (this) {
+                if (isNearDuplicate(signature, keptSignatures)) {
+                    removed++;
+                    savedBytes += utf8Length(page);
+                    savedTokens += TokenEstimator.estimateTokens(page);
+                    return false;
+                }
+                kept.add(page);
+                keptSignatures.add(signature);
+                return true;
+            }
+        }
+
+        // Records the metrics; call once, when no more pages will be offered
+        public synchronized DedupResult finish() {
+            if (removed > 0) {
+                pagesRemoved.increment(removed);
+                System.out.println("Removed " + removed + " near-duplicate pages, saved "
+                        + savedBytes + " bytes (~" + savedTokens + " tokens)");
+            }
+            bytesSaved.record(savedBytes);
+            tokensSaved.record(savedTokens);
+            return new DedupResult(new ArrayList<>(kept), removed, savedBytes, savedTokens);
+        }
+    }
+
+    private boolean isNearDuplicate(int[] signature, List<int[]> keptSignatures) {
+        for (int[] other : keptSignatures) {
+            if (similarity(signature, other) >= similarityThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Fraction of matching MinHash slots, an unbiased estimate of the Jaccard similarity of the shingle sets
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / NUM_HASHES;
+    }
+
+    static int[] signature(String text) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        // Ring of the last SHINGLE_WORDS word hashes; each full window is one shingle
+        long[] window = new long[SHINGLE_WORDS];
+        int words = 0;
+        long wordHash = 0xcbf29ce484222325L;
+        boolean inWord = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                // FNV-1a over the lowercased word
+                wordHash = (wordHash ^ Character.toLowerCase(c)) * 0x100000001b3L;
+                inWord = true;
+            } else if (inWord) {
+                window[words % SHINGLE_WORDS] = wordHash;
+                words++;
+                if (words >= SHINGLE_WORDS) {
+                    updateSignature(signature, shingleHash(window, words));
+                }
+                wordHash = 0xcbf29ce484222325L;
+                inWord = false;
+            }
+        }
+        // Pages shorter than one shingle are fingerprinted as a single shingle
+        if (words > 0 && words < SHINGLE_WORDS) {
+            updateSignature(signature, shingleHash(window, words));
+        }
+        return signature;
+    }
+
+    private static long shingleHash(long[] window, int words) {
+        long hash = 1;
+        int size = Math.min(words, SHINGLE_WORDS);
+        for (int k = words - size; k < words; k++) {
+            hash = hash * 31 + window[k % SHINGLE_WORDS];
+        }
+        return hash;
+    }
+
+    private static void updateSignature(int[] signature, long shingleHash) {
+        for (int i = 0; i < NUM_HASHES; i++) {
+            int value = (int) (mix(shingleHash ^ SEEDS[i]) >>> 33);
+            if (value < signature[i]) {
+                signature[i] = value;
+            }
+        }
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long utf8Length(String text) {
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    public static class DedupResult {
+        private final List<String> pages;
+        private final int pagesRemoved;
+        private final long bytesSaved;
+        private final int tokensSaved;
+
+        public DedupResult(List<String> pages, int pagesRemoved, long bytesSaved, int tokensSaved) {
+            this.pages = pages;
+            this.pagesRemoved = pagesRemoved;
+            this.bytesSaved = bytesSaved;
+            this.tokensSaved = tokensSaved;
+        }
+
+        public List<String> getPages() { return pages; }
+        public int getPagesRemoved() { return pagesRemoved; }
+        public long getBytesSaved() { return bytesSaved; }
+        public int getTokensSaved() { return tokensSaved; }
+    }
+}
@@ -1,44 +1,182 @@
 package com.example.info.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.ai.chat.client.ChatClient;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class OpenAiService {
 
-    private final ChatClient.Builder chatClient;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Sections of one article generated at the same time in sectioned mode
+    @Value("${content.sections.parallelism:6}")
+    private int sectionParallelism;
 
-    public OpenAiService(ChatClient.Builder chatClient) {
-        this.chatClient = chatClient;
+    @Value("${content.sections.max:6}")
+    private int maxSections;
+
+    // Research passages each section prompt gets, picked by relevance to that section
+    @Value("${content.sections.passages:8}")
+    private int sectionPassages;
+
+    private final ExecutorService sectionExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LlmGateway llmGateway;
+    private final LlmResponseCache responseCache;
+    private final KeywordClassifier keywordClassifier;
+    private final PassageRanker passageRanker;
+
+    public OpenAiService(LlmGateway llmGateway, LlmResponseCache responseCache, KeywordClassifier keywordClassifier,
+                         PassageRanker passageRanker) {
+        this.llmGateway = llmGateway;
+        this.responseCache = responseCache;
+        this.keywordClassifier = keywordClassifier;
+        this.passageRanker = passageRanker;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sectionExecutor.shutdownNow();
     }
 
     public ContentGenerationResponse generateContent(String topic, String researchData) {
+        return generateContent(topic, researchData, false);
+    }
+
+    // refresh skips cached responses for these prompts (and replaces them), so regenerating an
+    // article from the same research really writes it again
+    public ContentGenerationResponse generateContent(String topic, String researchData, boolean refresh) {
         String structuredPrompt = createStructuredPrompt(topic, researchData);
 
         try {
-            String aiResponse = chatClient.build().prompt(structuredPrompt).call().content();
+            String aiResponse = responseCache.get(structuredPrompt,
+                    () -> llmGateway.call("content", structuredPrompt),
+                    LlmResponseCache::isJsonObject, refresh);
             System.out.println("AI Response: " + aiResponse); // Debug log
             return parseContentResponse(aiResponse, topic);
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             System.err.println("AI Service failed: " + e.getMessage()); // Debug log
             return createFallbackResponse(topic, researchData);
         }
     }
 
+    // Asks for a short outline first, then writes the sections concurrently and stitches them into
+    // one article. Wall-clock time is roughly the outline plus the slowest section rather than the
+    // whole article written token by token. Each section prompt carries only the research passages
+    // relevant to that section. If any section fails the article is written in one call instead,
+    // rather than served with a hole in it.
+    public ContentGenerationResponse generateContentSectioned(String topic, String researchData) {
+        return generateContentSectioned(topic, researchData, false);
+    }
+
+    public ContentGenerationResponse generateContentSectioned(String topic, String researchData, boolean refresh) {
+        ContentGenerationResponse outline;
+        List<String> sections;
+        try {
+            String outlinePrompt = createOutlinePrompt(topic, researchData);
+            String aiResponse = responseCache.get(outlinePrompt,
+                    () -> llmGateway.call("outline", outlinePrompt),
+                    LlmResponseCache::isJsonObject, refresh);
+            StreamingJsonFieldExtractor extractor = new StreamingJsonFieldExtractor();
+            extractor.feed(aiResponse);
+            outline = toContentResponse(extractor.fields(), topic);
+            sections = arrayField(extractor.fields(), "sections");
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("AI outline failed: " + e.getMessage());
+            return createFallbackResponse(topic, researchData);
+        }
+        if (sections.isEmpty()) {
+            // No usable outline; write the article in one go instead
+            return generateContent(topic, researchData, refresh);
+        }
+        sections = sections.subList(0, Math.min(sections.size(), maxSections));
+
+        Semaphore permits = new Semaphore(sectionParallelism);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            String sectionPrompt = createSectionPrompt(topic, outline.getTitle(), sections, i,
+                    sectionResearch(sections.get(i), researchData));
+            futures.add(sectionExecutor.submit(() -> {
+                permits.acquire();
+                try {
+                    return responseCache.get(sectionPrompt,
+                            () -> llmGateway.call("section", sectionPrompt),
+                            text -> text != null && !text.isBlank(), refresh);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        StringBuilder article = new StringBuilder();
+        for (int i = 0; i < sections.size(); i++) {
+            try {
+                String text = futures.get(i).get();
+                article.append("## ").append(sectionHeading(sections.get(i))).append("\n\n")
+                        .append(text.trim()).append("\n\n");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new CancellationException("Sectioned generation interrupted");
+            } catch (ExecutionException e) {
+                System.err.println("AI section failed, writing the article in one call: " + sections.get(i)
+                        + " - " + e.getCause().getMessage());
+                futures.forEach(future -> future.cancel(true));
+                return generateContent(topic, researchData, refresh);
+            }
+        }
+        if (article.isEmpty()) {
+            return createFallbackResponse(topic, researchData);
+        }
+        outline.setArticleText(article.toString().trim());
+        return outline;
+    }
+
+    // Raw response chunks as the model produces them; a cached response arrives as a single chunk
+    public Flux<String> streamContent(String topic, String researchData) {
+        String structuredPrompt = createStructuredPrompt(topic, researchData);
+        String cached = responseCache.getIfPresent(structuredPrompt);
+        if (cached != null) {
+            return Flux.just(cached);
+        }
+        return llmGateway.stream("content-stream", structuredPrompt);
+    }
+
+    // Builds the response from a finished stream, caching it like a blocking call would have. The
+    // extractor has already seen every chunk, so the text is only re-parsed if it didn't finish.
+    public ContentGenerationResponse completeStreamedContent(String topic, String researchData, String aiResponse,
+                                                             StreamingJsonFieldExtractor extractor) {
+        if (aiResponse == null || aiResponse.isBlank()) {
+            return createFallbackResponse(topic, researchData);
+        }
+        if (LlmResponseCache.isJsonObject(aiResponse)) {
+            responseCache.put(createStructuredPrompt(topic, researchData), aiResponse);
+        }
+        if (extractor.isComplete()) {
+            return toContentResponse(extractor.fields(), topic);
+        }
+        return parseContentResponse(aiResponse, topic);
+    }
+
     private String createStructuredPrompt(String topic, String researchData) {
         return String.format("""
         You are an expert content creator. Based on the research about "%s", create comprehensive content.
         
-        Provide your response in EXACTLY this JSON format:
+        Provide your response in EXACTLY this JSON format, with the fields in this order:
         {
           "title": "A compelling title for %s",
-          "articleText": "A detailed 800-1200 word article with proper paragraphs and formatting",
           "summary": "A concise 2-3 sentence summary",
           "diagramIdeas": [
             "Architecture diagram showing %s components",
@@ -59,7 +197,8 @@ public class OpenAiService {
             "Connected concepts and technologies",
             "Advanced applications",
             "Industry-specific uses"
-          ]
+          ],
+          "articleText": "A detailed 800-1200 word article with proper paragraphs and formatting"
         }
         
         Research Data: %s
@@ -68,175 +207,116 @@ public class OpenAiService {
         """, topic, topic, topic, topic, topic, topic, topic, topic, topic, researchData);
     }
 
-    private ContentGenerationResponse parseContentResponse(String aiResponse, String topic) {
-        ContentGenerationResponse response = new ContentGenerationResponse();
-
-        try {
-            // Clean the response - remove any markdown or extra text
-            String cleanJson = aiResponse.trim();
-            if (cleanJson.startsWith("```json")) {
-                cleanJson = cleanJson.substring(7);
-            }
-            if (cleanJson.endsWith("```")) {
-                cleanJson = cleanJson.substring(0, cleanJson.length() - 3);
-            }
-            cleanJson = cleanJson.trim();
+    private String createOutlinePrompt(String topic, String researchData) {
+        return String.format("""
+        You are an expert content creator planning an article about "%s" from the research below.
+        
+        Provide your response in EXACTLY this JSON format, with the fields in this order:
+        {
+          "title": "A compelling title for %s",
+          "summary": "A concise 2-3 sentence summary",
+          "sections": [
+            "4-6 section headings in reading order, each followed by a colon and a one-line description of what the section covers"
+          ],
+          "diagramIdeas": [
+            "5-7 diagram ideas that would help explain %s"
+          ],
+          "keyInsights": [
+            "5-8 actionable insights about %s"
+          ],
+          "relatedTopics": [
+            "4-6 related topics for further exploration"
+          ]
+        }
+        
+        Research Data: %s
+        
+        Remember: Return ONLY the JSON object, no additional text or markdown formatting.
+        """, topic, topic, topic, topic, researchData);
+    }
 
-            JsonNode node = objectMapper.readTree(cleanJson);
+    private String createSectionPrompt(String topic, String title, List<String> sections, int index,
+                                       String researchData) {
+        StringBuilder outline = new StringBuilder();
+        for (int i = 0; i < sections.size(); i++) {
+            outline.append(i + 1).append(". ").append(sections.get(i)).append("\n");
+        }
+        int words = Math.max(120, 1000 / sections.size());
+        return String.format("""
+        You are writing one section of an article titled "%s" about "%s".
+        
+        Article outline:
+        %s
+        Write section %d, "%s", in about %d words. Cover only what this section is about; the other
+        sections are written separately, so don't introduce or conclude the whole article.
+        
+        Research Data: %s
+        
+        Remember: Return ONLY the section's paragraphs as plain text, without the heading or markdown.
+        """, title, topic, outline, index + 1, sections.get(index), words, researchData);
+    }
 
-            response.setTitle(node.path("title").asText(topic));
-            response.setArticleText(node.path("articleText").asText(""));
-            response.setSummary(node.path("summary").asText(""));
+    // The synthesized research is passages separated by blank lines; keep the ones that match this
+    // section's heading and description. With no match at all the whole research text is used.
+    private String sectionResearch(String section, String researchData) {
+        List<String> paragraphs = List.of(researchData.split("\n\n"));
+        return String.join("\n\n", passageRanker.selectPassages(section, paragraphs, sectionPassages));
+    }
 
-            response.setDiagramIdeas(parseArrayField(node, "diagramIdeas"));
-            response.setKeyInsights(parseArrayField(node, "keyInsights"));
-            response.setRelatedTopics(parseArrayField(node, "relatedTopics"));
+    private static String sectionHeading(String section) {
+        int colon = section.indexOf(':');
+        return (colon > 0 ? section.substring(0, colon) : section).trim();
+    }
 
-        } catch (Exception e) {
-            System.err.println("Failed to parse AI response: " + e.getMessage());
+    private ContentGenerationResponse parseContentResponse(String aiResponse, String topic) {
+        // The extractor skips a ```json fence itself, so the response isn't copied to strip it
+        StreamingJsonFieldExtractor extractor = new StreamingJsonFieldExtractor();
+        extractor.feed(aiResponse);
+        if (!extractor.isComplete()) {
+            System.err.println("Failed to parse AI response");
             return createFallbackResponse(topic, aiResponse);
         }
+        return toContentResponse(extractor.fields(), topic);
+    }
+
+    private ContentGenerationResponse toContentResponse(Map<String, Object> fields, String topic) {
+        ContentGenerationResponse response = new ContentGenerationResponse();
+        response.setTitle(textField(fields, "title", topic));
+        response.setArticleText(textField(fields, "articleText", ""));
+        response.setSummary(textField(fields, "summary", ""));
 
+        response.setDiagramIdeas(arrayField(fields, "diagramIdeas"));
+        response.setKeyInsights(arrayField(fields, "keyInsights"));
+        response.setRelatedTopics(arrayField(fields, "relatedTopics"));
         return response;
     }
 
-    private List<String> parseArrayField(JsonNode node, String fieldName) {
-        List<String> items = new ArrayList<>();
-        if (node.has(fieldName) && node.get(fieldName).isArray()) {
-            for (JsonNode item : node.get(fieldName)) {
-                items.add(item.asText());
-            }
-        }
-        return items;
+    private String textField(Map<String, Object> fields, String fieldName, String defaultValue) {
+        return fields.get(fieldName) instanceof String text ? text : defaultValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> arrayField(Map<String, Object> fields, String fieldName) {
+        return fields.get(fieldName) instanceof List<?> items ? new ArrayList<>((List<String>) items) : new ArrayList<>();
     }
 
     // HERE'S THE MISSING METHOD:
     private ContentGenerationResponse createFallbackResponse(String topic, String content) {
         ContentGenerationResponse response = new ContentGenerationResponse();
+        response.setDegraded(true);
         response.setTitle("Understanding " + topic);
         response.setArticleText(content.length() > 1000 ? content.substring(0, 1000) + "..." : content);
         response.setSummary("Comprehensive overview of " + topic + " covering key concepts, applications, and future implications.");
 
         // Enhanced diagram ideas specific to the topic
-        response.setDiagramIdeas(generateTopicSpecificDiagrams(topic));
-        response.setKeyInsights(generateTopicSpecificInsights(topic));
-        response.setRelatedTopics(generateTopicSpecificRelated(topic));
+        KeywordClassifier.Rule domain = keywordClassifier.classify(KeywordClassifier.TOPIC_DOMAIN, topic);
+        response.setDiagramIdeas(domain.list("diagramIdeas", topic));
+        response.setKeyInsights(domain.list("keyInsights", topic));
+        response.setRelatedTopics(domain.list("relatedTopics", topic));
 
         return response;
     }
 
-    private List<String> generateTopicSpecificDiagrams(String topic) {
-        String lowerTopic = topic.toLowerCase();
-        List<String> diagrams = new ArrayList<>();
-
-        if (lowerTopic.contains("ai") || lowerTopic.contains("artificial intelligence") || lowerTopic.contains("generative")) {
-            diagrams.addAll(Arrays.asList(
-                    "AI System Architecture showing data flow and processing layers",
-                    "Machine Learning Pipeline from data ingestion to model deployment",
-                    "AI vs Human Intelligence comparison matrix",
-                    "Timeline of AI development milestones",
-                    "AI Application Areas mind map (healthcare, finance, automotive, etc.)",
-                    "Neural Network Structure diagram showing layers and connections",
-                    "AI Ethics Framework flowchart for responsible development"
-            ));
-        } else if (lowerTopic.contains("cloud")) {
-            diagrams.addAll(Arrays.asList(
-                    "Cloud Architecture diagram with IaaS, PaaS, SaaS layers",
-                    "Data migration workflow to cloud infrastructure",
-                    "Multi-cloud deployment strategy visualization",
-                    "Cloud security framework and protocols",
-                    "Cost optimization decision tree for cloud services",
-                    "Hybrid cloud infrastructure layout and connections"
-            ));
-        } else if (lowerTopic.contains("blockchain")) {
-            diagrams.addAll(Arrays.asList(
-                    "Blockchain network architecture and node distribution",
-                    "Transaction flow diagram through blockchain",
-                    "Consensus mechanism comparison chart",
-                    "Smart contract execution workflow",
-                    "Cryptocurrency ecosystem map",
-                    "Blockchain vs traditional database comparison"
-            ));
-        } else {
-            diagrams.addAll(Arrays.asList(
-                    "System architecture overview for " + topic,
-                    "Process workflow diagram for " + topic + " implementation",
-                    "Component interaction diagram showing relationships",
-                    "Timeline showing " + topic + " evolution and milestones",
-                    "Comparison matrix of different " + topic + " approaches",
-                    "Use case scenarios and applications for " + topic,
-                    "Decision tree for implementing " + topic + " solutions"
-            ));
-        }
-
-        return diagrams;
-    }
-
-    private List<String> generateTopicSpecificInsights(String topic) {
-        String lowerTopic = topic.toLowerCase();
-        List<String> insights = new ArrayList<>();
-
-        if (lowerTopic.contains("ai") || lowerTopic.contains("artificial intelligence") || lowerTopic.contains("generative")) {
-            insights.addAll(Arrays.asList(
-                    "AI is transforming industries at an unprecedented pace",
-                    "Generative AI models require massive computational resources and data",
-                    "Ethical considerations are crucial for responsible AI development",
-                    "AI augments human capabilities rather than replacing them entirely",
-                    "Continuous learning and adaptation are key features of modern AI systems",
-                    "Data quality and bias directly impact AI model performance",
-                    "AI adoption requires significant organizational change management"
-            ));
-        } else {
-            insights.addAll(Arrays.asList(
-                    topic + " is rapidly transforming multiple industries worldwide",
-                    "Implementation requires careful planning and strategic approach",
-                    "Key benefits include significant efficiency gains and innovation opportunities",
-                    "Main challenges involve technical complexity and effective change management",
-                    "Future trends point toward increased adoption and deeper integration",
-                    "Success depends on proper training and organizational readiness",
-                    "Cost-benefit analysis is essential before " + topic + " implementation"
-            ));
-        }
-
-        return insights;
-    }
-
-    private List<String> generateTopicSpecificRelated(String topic) {
-        String lowerTopic = topic.toLowerCase();
-        List<String> related = new ArrayList<>();
-
-        if (lowerTopic.contains("ai") || lowerTopic.contains("artificial intelligence") || lowerTopic.contains("generative")) {
-            related.addAll(Arrays.asList(
-                    "Machine Learning Fundamentals and Algorithms",
-                    "Deep Learning and Neural Networks",
-                    "Natural Language Processing Applications",
-                    "Computer Vision and Image Recognition",
-                    "AI Ethics and Responsible Development",
-                    "Future of AI Technology and Society"
-            ));
-        } else if (lowerTopic.contains("cloud")) {
-            related.addAll(Arrays.asList(
-                    "DevOps and Continuous Integration",
-                    "Microservices Architecture",
-                    "Containerization and Kubernetes",
-                    "Cloud Security Best Practices",
-                    "Serverless Computing",
-                    "Edge Computing and IoT"
-            ));
-        } else {
-            related.addAll(Arrays.asList(
-                    "Advanced " + topic + " implementation techniques",
-                    topic + " best practices and methodologies",
-                    "Industry-specific applications of " + topic,
-                    "Future trends and innovations in " + topic,
-                    "Related technologies and complementary tools",
-                    "Strategic implementation and adoption strategies"
-            ));
-        }
-
-        return related;
-    }
-
     // Keep the existing ContentGenerationResponse class
     public static class ContentGenerationResponse {
         private String title;
@@ -245,6 +325,8 @@ public class OpenAiService {
         private List<String> diagramIdeas;
         private List<String> keyInsights;
         private List<String> relatedTopics;
+        // The fallback content served when the AI call failed
+        private boolean degraded;
 
         // Getters and setters
         public String getTitle() { return title; }
@@ -259,5 +341,7 @@ public class OpenAiService {
         public void setKeyInsights(List<String> keyInsights) { this.keyInsights = keyInsights; }
         public List<String> getRelatedTopics() { return relatedTopics; }
         public void setRelatedTopics(List<String> relatedTopics) { this.relatedTopics = relatedTopics; }
+        public boolean isDegraded() { return degraded; }
+        public void setDegraded(boolean degraded) { this.degraded = degraded; }
     }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.example.info.service;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+
+// Embeds topics with the configured embedding model, so paraphrases and abbreviations
+// ("what is GenAI") land close to the original topic
+public class OpenAiTopicEmbedder implements TopicEmbedder {
+
+    private final EmbeddingModel embeddingModel;
+
+    public OpenAiTopicEmbedder(EmbeddingModel embeddingModel) {
+        this.embeddingModel = embeddingModel;
+    }
+
+    @Override
+    public float[] embed(String topic) {
+        return embeddingModel.embed(topic);
+    }
+}
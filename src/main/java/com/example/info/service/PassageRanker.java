@@ -0,0 +1,224 @@
+package com.example.info.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class PassageRanker {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "how", "in", "is", "it",
+            "of", "on", "or", "that", "the", "to", "vs", "what", "when", "why", "with"
+    );
+
+    @Value("${synthesis.passage.words:80}")
+    private int passageWords;
+
+    @Value("${synthesis.passage.max:30}")
+    private int maxPassages;
+
+    // Splits every page into ~passageWords passages, ranks them against the topic with BM25 and
+    // returns, per page, only its top-ranked passages in their original order. Pages with nothing
+    // relevant are dropped. If the topic matches nothing at all the pages are returned unchanged.
+    public List<String> selectPassages(String topic, List<String> pages) {
+        return selectPassages(topic, pages, maxPassages);
+    }
+
+    // As above, keeping at most limit passages
+    public List<String> selectPassages(String topic, List<String> pages, int limit) {
+        PassageIndex index = new PassageIndex(pages, passageWords);
+        float[] scores = index.score(queryTerms(topic));
+
+        int[] top = topPassages(scores, limit);
+        if (top.length == 0) {
+            return pages;
+        }
+        Arrays.sort(top);
+
+        List<String> selected = new ArrayList<>();
+        StringBuilder page = new StringBuilder();
+        int currentPage = index.pageOf[top[0]];
+        for (int passage : top) {
+            if (index.pageOf[passage] != currentPage) {
+                selected.add(page.toString());
+                page.setLength(0);
+                currentPage = index.pageOf[passage];
+            }
+            if (!page.isEmpty()) {
+                page.append(' ');
+            }
+            page.append(pages.get(currentPage), index.start[passage], index.end[passage]);
+        }
+        selected.add(page.toString());
+        return selected;
+    }
+
+    private static List<String> queryTerms(String topic) {
+        List<String> terms = new ArrayList<>();
+        forEachTerm(topic, 0, topic.length(), (term, position) -> {
+            if (!STOP_WORDS.contains(term) && !terms.contains(term)) {
+                terms.add(term);
+            }
+        });
+        return terms;
+    }
+
+    private static int[] topPassages(float[] scores, int limit) {
+        int matching = 0;
+        for (float score : scores) {
+            if (score > 0) {
+                matching++;
+            }
+        }
+        Integer[] ranked = new Integer[matching];
+        for (int i = 0, n = 0; i < scores.length; i++) {
+            if (scores[i] > 0) {
+                ranked[n++] = i;
+            }
+        }
+        Arrays.sort(ranked, (a, b) -> Float.compare(scores[b], scores[a]));
+
+        int[] top = new int[Math.min(limit, matching)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = ranked[i];
+        }
+        return top;
+    }
+
+    // Tokenizes text[from, to) into lowercase alphanumeric terms without intermediate substrings
+    private static void forEachTerm(String text, int from, int to, TermConsumer consumer) {
+        StringBuilder term = new StringBuilder(24);
+        for (int i = from; i <= to; i++) {
+            char c = i < to ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (!term.isEmpty()) {
+                consumer.accept(term.toString(), i);
+                term.setLength(0);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface TermConsumer {
+        void accept(String term, int endPosition);
+    }
+
+    // Per-request inverted index. Passages are stored as (page, start, end) offsets into the page
+    // text and postings as packed (passage, termFrequency) int pairs, so no passage text is copied.
+    private static class PassageIndex {
+        private int[] pageOf = new int[64];
+        private int[] start = new int[64];
+        private int[] end = new int[64];
+        private int[] length = new int[64];
+        private int passageCount;
+        private long totalLength;
+
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private int[][] postings = new int[256][];
+        private int[] postingSize = new int[256];
+        private int[] lastPassage = new int[256];
+
+        PassageIndex(List<String> pages, int passageWords) {
+            for (int p = 0; p < pages.size(); p++) {
+                indexPage(p, pages.get(p), passageWords);
+            }
+        }
+
+        private void indexPage(int page, String text, int passageWords) {
+            int[] words = {0};
+            forEachTerm(text, 0, text.length(), (term, position) -> {
+                if (words[0] == 0) {
+                    openPassage(page, position - term.length());
+                }
+                addTerm(term);
+                words[0]++;
+                // Prefer to close passages at sentence ends, but never let them grow past 1.5x
+                boolean sentenceEnd = position < text.length() && ".!?".indexOf(text.charAt(position)) >= 0;
+                if ((words[0] >= passageWords && sentenceEnd) || words[0] >= passageWords * 3 / 2) {
+                    closePassage(Math.min(position + 1, text.length()), words[0]);
+                    words[0] = 0;
+                }
+            });
+            if (words[0] > 0) {
+                closePassage(text.length(), words[0]);
+            }
+        }
+
+        private void openPassage(int page, int offset) {
+            if (passageCount == pageOf.length) {
+                int capacity = passageCount * 2;
+                pageOf = Arrays.copyOf(pageOf, capacity);
+                start = Arrays.copyOf(start, capacity);
+                end = Arrays.copyOf(end, capacity);
+                length = Arrays.copyOf(length, capacity);
+            }
+            pageOf[passageCount] = page;
+            start[passageCount] = offset;
+        }
+
+        private void closePassage(int offset, int words) {
+            end[passageCount] = offset;
+            length[passageCount] = words;
+            totalLength += words;
+            passageCount++;
+        }
+
+        private void addTerm(String term) {
+            int termId = termIds.computeIfAbsent(term, t -> termIds.size());
+            if (termId == postings.length) {
+                postings = Arrays.copyOf(postings, termId * 2);
+                postingSize = Arrays.copyOf(postingSize, termId * 2);
+                lastPassage = Arrays.copyOf(lastPassage, termId * 2);
+            }
+            int[] list = postings[termId];
+            if (list == null) {
+                list = postings[termId] = new int[8];
+                lastPassage[termId] = -1;
+            }
+            if (lastPassage[termId] == passageCount) {
+                list[postingSize[termId] - 1]++;
+                return;
+            }
+            if (postingSize[termId] + 2 > list.length) {
+                list = postings[termId] = Arrays.copyOf(list, list.length * 2);
+            }
+            list[postingSize[termId]++] = passageCount;
+            list[postingSize[termId]++] = 1;
+            lastPassage[termId] = passageCount;
+        }
+
+        float[] score(List<String> queryTerms) {
+            float[] scores = new float[passageCount];
+            if (passageCount == 0) {
+                return scores;
+            }
+            float averageLength = (float) totalLength / passageCount;
+            for (String term : queryTerms) {
+                Integer termId = termIds.get(term);
+                if (termId == null) {
+                    continue;
+                }
+                int[] list = postings[termId];
+                int documentFrequency = postingSize[termId] / 2;
+                float idf = (float) Math.log(1 + (passageCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                for (int i = 0; i < postingSize[termId]; i += 2) {
+                    int passage = list[i];
+                    int tf = list[i + 1];
+                    float norm = K1 * (1 - B + B * length[passage] / averageLength);
+                    scores[passage] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+            return scores;
+        }
+    }
+}
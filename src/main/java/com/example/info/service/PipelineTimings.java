@@ -0,0 +1,62 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Wall-clock time of each stage of one research or generation run. report() records every stage
+// as pipeline.stage{pipeline, stage} plus the whole run as pipeline.total{pipeline, outcome}, and
+// logs one line per run.
+public class PipelineTimings {
+
+    private final String pipeline;
+    private final String topic;
+    private final long start = System.nanoTime();
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final Map<String, Object> details = new LinkedHashMap<>();
+
+    public PipelineTimings(String pipeline, String topic) {
+        this.pipeline = pipeline;
+        this.topic = topic;
+    }
+
+    public <T> T time(String stage, Supplier<T> work) {
+        long stageStart = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(stage, stageStart);
+        }
+    }
+
+    public synchronized void record(String stage, long stageStartNanos) {
+        stageNanos.merge(stage, System.nanoTime() - stageStartNanos, Long::sum);
+    }
+
+    // Extra facts for the log line, e.g. how many pages the scrape stage waited for
+    public synchronized void detail(String name, Object value) {
+        details.put(name, value);
+    }
+
+    public synchronized void report(MeterRegistry meterRegistry, boolean success) {
+        long total = System.nanoTime() - start;
+        StringBuilder line = new StringBuilder("Pipeline ").append(pipeline).append(" '").append(topic).append("':");
+        stageNanos.forEach((stage, nanos) -> {
+            Timer.builder("pipeline.stage").tags("pipeline", pipeline, "stage", stage).register(meterRegistry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            line.append(' ').append(stage).append('=').append(TimeUnit.NANOSECONDS.toMillis(nanos)).append("ms");
+        });
+        Timer.builder("pipeline.total").tags("pipeline", pipeline, "outcome", success ? "success" : "failure")
+                .register(meterRegistry)
+                .record(total, TimeUnit.NANOSECONDS);
+        details.forEach((name, value) -> line.append(' ').append(name).append('=').append(value));
+        line.append(" total=").append(TimeUnit.NANOSECONDS.toMillis(total)).append("ms");
+        if (!success) {
+            line.append(" (failed)");
+        }
+        System.out.println(line);
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Shared per-domain rate limiting for the scraper. Every scraping thread of every concurrent
+// research request goes through here, so a popular domain sees at most requestsPerSecond
+// requests (with short bursts) from this instance, and a Retry-After from it pauses everyone.
+// Queue depth and wait time are tagged per domain for at most metrics.max.domains domains at a
+// time; the rest share domain=other. Domains idle for idle.minutes lose their meters and state.
+@Service
+public class PolitenessScheduler {
+
+    // Domains hash onto a fixed number of buckets; colliding domains simply share a budget
+    private static final int STRIPES = 256;
+    private static final String OTHER_DOMAIN = "other";
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Value("${scraper.politeness.requests.per.second:2}")
+    private double requestsPerSecond;
+
+    @Value("${scraper.politeness.burst:4}")
+    private int burst;
+
+    @Value("${scraper.robots.enabled:false}")
+    private boolean robotsEnabled;
+
+    @Value("${scraper.robots.ttl.minutes:60}")
+    private long robotsTtlMinutes;
+
+    @Value("${scraper.politeness.metrics.max.domains:20}")
+    private int maxTaggedDomains;
+
+    @Value("${scraper.politeness.idle.minutes:10}")
+    private long idleMinutes;
+
+    // Per stripe the "theoretical arrival time" of the next request (GCRA); updated by CAS only
+    private final AtomicLongArray nextSlot = new AtomicLongArray(STRIPES);
+    private final Map<String, Long> blockedUntil = new ConcurrentHashMap<>();
+    private final Map<String, RobotsRules> robotsCache = new ConcurrentHashMap<>();
+    private final Map<String, DomainMeters> meters = new ConcurrentHashMap<>();
+    // Domains that found the tag slots full, with when they were last used; they stay on
+    // domain=other until idle so only their first acquire takes the register lock
+    private final Map<String, Long> otherDomains = new ConcurrentHashMap<>();
+    private final DomainMeters otherMeters;
+    private final MeterRegistry meterRegistry;
+    private long lastSweep = System.nanoTime();
+
+    public PolitenessScheduler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.otherMeters = new DomainMeters(OTHER_DOMAIN, meterRegistry);
+        for (int i = 0; i < STRIPES; i++) {
+            nextSlot.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    // Waits for the domain's next request slot. Returns false without consuming a slot when the
+    // slot (or an active Retry-After) lies beyond the caller's deadline.
+    public boolean acquire(String domain, long deadlineNanos) throws InterruptedException {
+        DomainMeters domainMeters = metersFor(domain);
+        domainMeters.queued.incrementAndGet();
+        long waitStart = System.nanoTime();
+        try {
+            Long blocked = blockedUntil.get(domain);
+            if (blocked != null) {
+                if (blocked - System.nanoTime() <= 0) {
+                    blockedUntil.remove(domain, blocked);
+                } else if (blocked - deadlineNanos > 0) {
+                    return false;
+                } else {
+                    sleepUntil(blocked);
+                }
+            }
+
+            long startAt = reserveSlot(domain, deadlineNanos);
+            if (startAt == Long.MIN_VALUE) {
+                return false;
+            }
+            sleepUntil(startAt);
+            return true;
+        } finally {
+            domainMeters.queued.decrementAndGet();
+            domainMeters.waitTime.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private long reserveSlot(String domain, long deadlineNanos) {
+        int stripe = stripeOf(domain);
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        long tolerance = interval * Math.max(0, burst - 1);
+        while (true) {
+            long now = System.nanoTime();
+            long current = nextSlot.get(stripe);
+            long base = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+            long startAt = base - tolerance - now > 0 ? base - tolerance : now;
+            if (startAt - deadlineNanos > 0) {
+                return Long.MIN_VALUE;
+            }
+            if (nextSlot.compareAndSet(stripe, current, base + interval)) {
+                return startAt;
+            }
+        }
+    }
+
+    // Called for 429/503 responses; honours both delta-seconds and HTTP-date Retry-After values
+    public void backOff(String domain, String retryAfter) {
+        Duration delay = parseRetryAfter(retryAfter);
+        if (delay == null) {
+            return;
+        }
+        long until = System.nanoTime() + delay.toNanos();
+        blockedUntil.merge(domain, until, (a, b) -> a - b > 0 ? a : b);
+        System.err.println("Backing off " + domain + " for " + delay.toSeconds() + "s (Retry-After)");
+    }
+
+    public boolean isAllowed(String url) {
+        if (!robotsEnabled) {
+            return true;
+        }
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        if (uri.getHost() == null) {
+            return true;
+        }
+        String origin = uri.getScheme() + "://" + uri.getHost().toLowerCase()
+                + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+        // Fetched outside of any map lock; two threads racing on a cold origin just fetch it twice
+        RobotsRules rules = robotsCache.get(origin);
+        if (rules == null || rules.isExpired()) {
+            rules = fetchRobots(origin);
+            robotsCache.put(origin, rules);
+        }
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return rules.allows(path);
+    }
+
+    private RobotsRules fetchRobots(String origin) {
+        long expiresAt = System.nanoTime() + TimeUnit.MINUTES.toNanos(robotsTtlMinutes);
+        try {
+            Connection.Response response = Jsoup.connect(origin + "/robots.txt")
+                    .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36")
+                    .timeout(2000)
+                    .maxBodySize(512 * 1024)
+                    .ignoreContentType(true)
+                    .ignoreHttpErrors(true)
+                    .execute();
+            if (response.statusCode() >= 400) {
+                return RobotsRules.allowAll(expiresAt);
+            }
+            return RobotsRules.parse(response.body(), expiresAt);
+        } catch (Exception e) {
+            return RobotsRules.allowAll(expiresAt);
+        }
+    }
+
+    private DomainMeters metersFor(String domain) {
+        long now = System.nanoTime();
+        DomainMeters domainMeters = meters.get(domain);
+        if (domainMeters == null) {
+            domainMeters = otherDomains.replace(domain, now) != null ? otherMeters : register(domain);
+        }
+        domainMeters.lastUsed = now;
+        return domainMeters;
+    }
+
+    private synchronized DomainMeters register(String domain) {
+        DomainMeters domainMeters = meters.get(domain);
+        if (domainMeters != null) {
+            return domainMeters;
+        }
+        long now = System.nanoTime();
+        if (now - lastSweep > SWEEP_INTERVAL_NANOS) {
+            lastSweep = now;
+            evictIdle(now);
+        }
+        if (meters.size() >= maxTaggedDomains) {
+            otherDomains.put(domain, now);
+            return otherMeters;
+        }
+        domainMeters = new DomainMeters(domain, meterRegistry);
+        meters.put(domain, domainMeters);
+        return domainMeters;
+    }
+
+    // Frees tag slots held by domains nobody has scraped lately, and drops expired back-offs and
+    // robots.txt rules so neither map grows with every domain ever seen
+    private void evictIdle(long now) {
+        long idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        meters.values().removeIf(domainMeters -> {
+            if (domainMeters.queued.get() > 0 || now - domainMeters.lastUsed < idleNanos) {
+                return false;
+            }
+            domainMeters.remove(meterRegistry);
+            return true;
+        });
+        otherDomains.values().removeIf(lastUsed -> now - lastUsed >= idleNanos);
+        blockedUntil.values().removeIf(until -> until - now <= 0);
+        robotsCache.values().removeIf(RobotsRules::isExpired);
+    }
+
+    private static int stripeOf(String domain) {
+        int h = domain.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    static Duration parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                Duration delay = Duration.between(ZonedDateTime.now(date.getZone()), date);
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+    }
+
+    private static class DomainMeters {
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Gauge queueDepth;
+        private final Timer waitTime;
+        private volatile long lastUsed = System.nanoTime();
+
+        DomainMeters(String domain, MeterRegistry registry) {
+            this.queueDepth = Gauge.builder("scraper.politeness.queue.depth", queued, AtomicInteger::get)
+                    .tag("domain", domain)
+                    .register(registry);
+            this.waitTime = Timer.builder("scraper.politeness.wait")
+                    .tag("domain", domain)
+                    .register(registry);
+        }
+
+        void remove(MeterRegistry registry) {
+            registry.remove(queueDepth);
+            registry.remove(waitTime);
+        }
+    }
+
+    // Allow/Disallow prefixes from the "User-agent: *" group; the longest matching rule wins
+    private static class RobotsRules {
+        private final List<String> allow;
+        private final List<String> disallow;
+        private final long expiresAt;
+
+        private RobotsRules(List<String> allow, List<String> disallow, long expiresAt) {
+            this.allow = allow;
+            this.disallow = disallow;
+            this.expiresAt = expiresAt;
+        }
+
+        static RobotsRules allowAll(long expiresAt) {
+            return new RobotsRules(List.of(), List.of(), expiresAt);
+        }
+
+        static RobotsRules parse(String robotsTxt, long expiresAt) {
+            List<String> allow = new ArrayList<>();
+            List<String> disallow = new ArrayList<>();
+            boolean inWildcardGroup = false;
+            boolean groupHasRules = false;
+            for (String rawLine : robotsTxt.split("\\R")) {
+                int comment = rawLine.indexOf('#');
+                String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String field = line.substring(0, colon).trim().toLowerCase();
+                String value = line.substring(colon + 1).trim();
+                if (field.equals("user-agent")) {
+                    // Consecutive user-agent lines belong to the same group
+                    if (groupHasRules) {
+                        inWildcardGroup = false;
+                        groupHasRules = false;
+                    }
+                    inWildcardGroup |= value.equals("*");
+                } else if (field.equals("allow") || field.equals("disallow")) {
+                    groupHasRules = true;
+                    if (inWildcardGroup && !value.isEmpty()) {
+                        (field.equals("allow") ? allow : disallow).add(value);
+                    }
+                }
+            }
+            return new RobotsRules(allow, disallow, expiresAt);
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+
+        boolean allows(String path) {
+            int allowMatch = longestMatch(allow, path);
+            int disallowMatch = longestMatch(disallow, path);
+            return disallowMatch < 0 || allowMatch >= disallowMatch;
+        }
+
+        private static int longestMatch(List<String> prefixes, String path) {
+            int longest = -1;
+            for (String prefix : prefixes) {
+                String literal = prefix.endsWith("$") || prefix.endsWith("*")
+                        ? prefix.substring(0, prefix.length() - 1)
+                        : prefix;
+                if (literal.indexOf('*') < 0 && path.startsWith(literal) && literal.length() > longest) {
+                    longest = literal.length();
+                }
+            }
+            return longest;
+        }
+    }
+}
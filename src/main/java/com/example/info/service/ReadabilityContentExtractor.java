@@ -0,0 +1,144 @@
+package com.example.info.service;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Readability-style main content detection: paragraphs vote for their parent blocks by text
+// density, blocks are penalised for link density and boilerplate class names, and only the
+// winning block plus its strong siblings are returned. Falls back to the selector extraction
+// when no block stands out (e.g. index pages).
+public class ReadabilityContentExtractor implements ContentExtractor {
+
+    private static final String UNLIKELY_TAGS = "script, style, noscript, iframe, nav, header, footer, aside, form, svg";
+    private static final Pattern POSITIVE = Pattern.compile(
+            "article|body|content|entry|main|page|post|text|blog|story", Pattern.CASE_INSENSITIVE);
+    private static final Pattern NEGATIVE = Pattern.compile(
+            "comment|footer|footnote|masthead|meta|nav|menu|cookie|consent|banner|sidebar|sponsor|share|social"
+                    + "|promo|related|advert|popup|subscribe|newsletter|breadcrumb", Pattern.CASE_INSENSITIVE);
+
+    private static final int MIN_PARAGRAPH_LENGTH = 25;
+    private static final double MIN_CANDIDATE_SCORE = 20;
+
+    private final ContentExtractor fallback = new SelectorContentExtractor();
+
+    @Override
+    public String extract(Document doc) {
+        Element body = doc.body();
+        if (body == null) {
+            return "";
+        }
+        body.select(UNLIKELY_TAGS).remove();
+
+        Map<Element, Double> scores = new IdentityHashMap<>();
+        for (Element paragraph : body.select("p, pre, td, blockquote")) {
+            String text = paragraph.text();
+            if (text.length() < MIN_PARAGRAPH_LENGTH) {
+                continue;
+            }
+            double score = 1 + countCommas(text) + Math.min(text.length() / 100, 3);
+
+            Element parent = paragraph.parent();
+            if (parent == null) {
+                continue;
+            }
+            scores.merge(parent, score, Double::sum);
+            Element grandparent = parent.parent();
+            if (grandparent != null) {
+                scores.merge(grandparent, score / 2, Double::sum);
+            }
+        }
+
+        Element best = null;
+        double bestScore = 0;
+        for (Map.Entry<Element, Double> candidate : scores.entrySet()) {
+            Element element = candidate.getKey();
+            double score = (candidate.getValue() + tagWeight(element) + classWeight(element))
+                    * (1 - linkDensity(element));
+            candidate.setValue(score);
+            if (score > bestScore) {
+                best = element;
+                bestScore = score;
+            }
+        }
+
+        if (best == null || bestScore < MIN_CANDIDATE_SCORE) {
+            return fallback.extract(doc);
+        }
+        return collectArticle(best, bestScore, scores);
+    }
+
+    // Articles are often split across sibling blocks, so keep siblings that scored close to the winner
+    private String collectArticle(Element best, double bestScore, Map<Element, Double> scores) {
+        Element parent = best.parent();
+        if (parent == null) {
+            return best.text();
+        }
+        double threshold = Math.max(10, bestScore * 0.2);
+        StringBuilder article = new StringBuilder();
+        for (Element sibling : parent.children()) {
+            Double score = scores.get(sibling);
+            boolean include = sibling == best || (score != null && score >= threshold)
+                    || (sibling.tagName().equals("p") && sibling.text().length() > 80 && linkDensity(sibling) < 0.25);
+            if (include) {
+                if (!article.isEmpty()) {
+                    article.append(' ');
+                }
+                article.append(sibling.text());
+            }
+        }
+        return article.toString();
+    }
+
+    private static double tagWeight(Element element) {
+        return switch (element.tagName()) {
+            case "article" -> 10;
+            case "div", "main" -> 5;
+            case "section", "pre", "td", "blockquote" -> 3;
+            case "ol", "ul", "dl", "dd", "dt", "li" -> -3;
+            case "h1", "h2", "h3", "h4", "h5", "h6", "th" -> -5;
+            default -> 0;
+        };
+    }
+
+    private static double classWeight(Element element) {
+        double weight = 0;
+        String signature = element.className() + " " + element.id();
+        if (signature.isBlank()) {
+            return weight;
+        }
+        if (NEGATIVE.matcher(signature).find()) {
+            weight -= 25;
+        }
+        if (POSITIVE.matcher(signature).find()) {
+            weight += 25;
+        }
+        return weight;
+    }
+
+    private static double linkDensity(Element element) {
+        int textLength = element.text().length();
+        if (textLength == 0) {
+            return 0;
+        }
+        Elements links = element.select("a");
+        int linkLength = 0;
+        for (Element link : links) {
+            linkLength += link.text().length();
+        }
+        return Math.min(1, (double) linkLength / textLength);
+    }
+
+    private static int countCommas(String text) {
+        int commas = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == ',') {
+                commas++;
+            }
+        }
+        return commas;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs concurrent identical requests once. The first caller for a key starts the work on a virtual
+// thread; callers arriving while it runs attach to that run, and all of them get its result or its
+// failure. Every attached caller holds a reference. A caller that stops waiting (cancels its
+// future, is interrupted or times out) drops its reference, and when the last one is gone the run is
+// cancelled and its thread interrupted. Nothing is kept after a run completes. Owners call
+// shutdown() when they are destroyed, which interrupts any runs still going.
+// Publishes <name>.executions, .coalesced, .cancelled and .in.flight metrics.
+public class RequestCoalescer<K, V> {
+
+    private final Duration waitTimeout;
+    private final Map<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter executions;
+    private final Counter coalesced;
+    private final Counter cancelled;
+
+    public RequestCoalescer(String name, Duration waitTimeout, MeterRegistry meterRegistry) {
+        this.waitTimeout = waitTimeout;
+        this.executions = meterRegistry.counter(name + ".executions");
+        this.coalesced = meterRegistry.counter(name + ".coalesced");
+        this.cancelled = meterRegistry.counter(name + ".cancelled");
+        Gauge.builder(name + ".in.flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    // Blocks for the shared result, giving up (and dropping this caller's reference) after the wait timeout
+    public V execute(K key, Supplier<V> work) {
+        CompletableFuture<V> result = submit(key, work);
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new IllegalStateException("Gave up waiting for " + key + " after " + waitTimeout.toMillis() + "ms");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + key, e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    // This caller's view of the shared run; cancelling it only drops this caller's reference
+    public CompletableFuture<V> submit(K key, Supplier<V> work) {
+        while (true) {
+            Flight<V> created = new Flight<>();
+            Flight<V> existing = inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                executions.increment();
+                created.retain();
+                CompletableFuture<V> handle = attach(key, created);
+                try {
+                    created.start(executor.submit(() -> run(key, created, work)));
+                } catch (RejectedExecutionException e) {
+                    // Shut down
+                    inFlight.remove(key, created);
+                    created.result.completeExceptionally(e);
+                }
+                return handle;
+            }
+            if (existing.retain()) {
+                coalesced.increment();
+                return attach(key, existing);
+            }
+            // Cancelled just now but not yet unmapped
+            inFlight.remove(key, existing);
+        }
+    }
+
+    // The flight is unmapped before its result completes, so a caller that sees the result can
+    // never attach to the finished run again and gets a fresh one instead
+    private void run(K key, Flight<V> flight, Supplier<V> work) {
+        V value;
+        try {
+            value = work.get();
+        } catch (Throwable e) {
+            inFlight.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            return;
+        }
+        inFlight.remove(key, flight);
+        flight.result.complete(value);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<V> attach(K key, Flight<V> flight) {
+        CompletableFuture<V> handle = new CompletableFuture<>();
+        flight.result.whenComplete((value, error) -> {
+            if (error != null) {
+                handle.completeExceptionally(error);
+            } else {
+                handle.complete(value);
+            }
+        });
+        handle.whenComplete((value, error) -> {
+            // Completed by the caller (cancel or timeout) rather than by the run
+            if (error != null && !flight.result.isDone()) {
+                release(key, flight);
+            }
+        });
+        return handle;
+    }
+
+    private void release(K key, Flight<V> flight) {
+        if (!flight.release()) {
+            return;
+        }
+        inFlight.remove(key, flight);
+        cancelled.increment();
+        flight.result.completeExceptionally(new CancellationException("Every caller for " + key + " gave up"));
+        flight.cancelTask();
+    }
+
+    private static RuntimeException unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error instanceof RuntimeException runtime ? runtime : new RuntimeException(error);
+    }
+
+    private static class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private Future<?> task;
+        private int references;
+        private boolean closed;
+
+        synchronized boolean retain() {
+            if (closed) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        // True when this was the last reference and the run should be cancelled
+        synchronized boolean release() {
+            if (closed || result.isDone() || --references > 0) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        synchronized void start(Future<?> task) {
+            this.task = task;
+            if (closed) {
+                task.cancel(true);
+            }
+        }
+
+        synchronized void cancelTask() {
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+    }
+}
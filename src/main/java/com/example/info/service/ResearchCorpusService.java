@@ -0,0 +1,96 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// The web research behind a topic: search results, the unique pages scraped from them and the
+// synthesized text, built once and shared by research mode, content generation and regeneration
+// for research.corpus.ttl.minutes. Keyed by normalised topic; concurrent requests for a topic that
+// is still being gathered wait for that one gathering.
+@Service
+public class ResearchCorpusService {
+
+    @Value("${research.corpus.ttl.minutes:30}")
+    private long ttlMinutes;
+
+    @Value("${research.corpus.max.entries:50}")
+    private int maxEntries;
+
+    @Value("${serpapi.timeout.ms:30000}")
+    private long searchTimeoutMs;
+
+    @Value("${scraper.deadline.ms:8000}")
+    private long scrapeDeadlineMs;
+
+    private final SerpApiService serpApiService;
+    private final ContentAnalysisService contentAnalysisService;
+    private final MeterRegistry meterRegistry;
+    private ExpiringCache<String, Corpus> corpora;
+
+    public ResearchCorpusService(SerpApiService serpApiService,
+                                 ContentAnalysisService contentAnalysisService,
+                                 MeterRegistry meterRegistry) {
+        this.serpApiService = serpApiService;
+        this.contentAnalysisService = contentAnalysisService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        corpora = new ExpiringCache<>("research.corpus", Duration.ofMinutes(ttlMinutes), maxEntries, meterRegistry);
+    }
+
+    // Stages of a fresh gathering are recorded in the given timings
+    public Corpus getCorpus(String topic, PipelineTimings timings) {
+        String key = TopicNormalizer.normalize(topic);
+        AtomicBoolean gathered = new AtomicBoolean();
+        Corpus corpus = corpora.get(key, () -> {
+            gathered.set(true);
+            return gather(topic, timings);
+        });
+        if (gathered.get() && corpus.pages().isEmpty()) {
+            // Nothing could be scraped this time; don't keep serving that
+            corpora.invalidate(key);
+        }
+        timings.detail("corpus", gathered.get() ? "gathered" : "reused");
+        timings.detail("pages", corpus.pages().size() + "/" + corpus.urls().size());
+        return corpus;
+    }
+
+    // Longest a fresh gathering takes: the search, then scraping until the scraper deadline
+    public long worstCaseGatherMillis() {
+        return searchTimeoutMs + scrapeDeadlineMs;
+    }
+
+    public void invalidate(String topic) {
+        corpora.invalidate(TopicNormalizer.normalize(topic));
+    }
+
+    private Corpus gather(String topic, PipelineTimings timings) {
+        // Search the web using SERP API
+        SerpApiService.SerpApiResponse searchResponse = timings.time("serp", () -> serpApiService.searchWeb(topic));
+
+        // Scrape every result at once, moving on as soon as there is enough unique content rather
+        // than after the slowest page
+        List<String> urls = searchResponse.getResults().stream()
+                .map(SerpApiService.SearchResult::getLink)
+                .collect(Collectors.toList());
+        ContentAnalysisService.GatheredPages gathered =
+                timings.time("scrape", () -> contentAnalysisService.gatherContent(urls).join());
+
+        String synthesized = timings.time("synthesis",
+                () -> contentAnalysisService.synthesizeContent(topic, gathered.pages()));
+        return new Corpus(List.copyOf(urls), gathered.urls(), gathered.pages(), synthesized);
+    }
+
+    // pages are unique and in search result order, pageUrls.get(i) being where pages.get(i) came
+    // from; synthesizedContent is their topic-relevant passages within the synthesis token budget
+    public record Corpus(List<String> urls, List<String> pageUrls, List<String> pages, String synthesizedContent) {
+    }
+}
@@ -2,26 +2,60 @@ package com.example.info.service;
 
 import com.example.info.model.ResearchQuery;
 import com.example.info.repository.ResearchQueryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class ResearchService {
 
-    private final SerpApiService serpApiService;
-    private final ContentAnalysisService contentAnalysisService;
+    // Sequential LLM calls in the worst case: the map stage, then the reduce (or, if every map call
+    // failed, the single call)
+    private static final int LLM_STAGES = 2;
+
+    // 0 derives it from the pipeline's own deadlines
+    @Value("${pipeline.wait.timeout.ms:0}")
+    private long waitTimeoutMs;
+
+    private final ResearchCorpusService corpusService;
     private final AiResponseGeneratorService aiResponseGeneratorService;
+    private final LlmGateway llmGateway;
     private final ResearchQueryRepository repository;
+    private final SemanticTopicCache topicCache;
+    private final MeterRegistry meterRegistry;
+    private RequestCoalescer<String, ResearchQuery> inFlight;
 
-    public ResearchService(SerpApiService serpApiService,
-                           ContentAnalysisService contentAnalysisService,
+    public ResearchService(ResearchCorpusService corpusService,
                            AiResponseGeneratorService aiResponseGeneratorService,
-                           ResearchQueryRepository repository) {
-        this.serpApiService = serpApiService;
-        this.contentAnalysisService = contentAnalysisService;
+                           LlmGateway llmGateway,
+                           ResearchQueryRepository repository,
+                           SemanticTopicCache topicCache,
+                           MeterRegistry meterRegistry) {
+        this.corpusService = corpusService;
         this.aiResponseGeneratorService = aiResponseGeneratorService;
+        this.llmGateway = llmGateway;
         this.repository = repository;
+        this.topicCache = topicCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        long waitMs = waitTimeoutMs > 0
+                ? waitTimeoutMs
+                : corpusService.worstCaseGatherMillis() + LLM_STAGES * llmGateway.worstCaseCallMillis();
+        inFlight = new RequestCoalescer<>("research.inflight", Duration.ofMillis(waitMs), meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        inFlight.shutdown();
     }
 
     public ResearchQuery conductResearch(String topic) {
@@ -31,35 +65,67 @@ public class ResearchService {
             return cached;
         }
 
-        try {
-            // Step 2: Send query to SERP API - FIX: Get the response object first
-            SerpApiService.SerpApiResponse searchResponse = serpApiService.searchWeb(topic);
+        // Step 1b: Reuse research on a topic that means the same thing ("what is GenAI")
+        Optional<ResearchQuery> similar = findSimilar(topic);
+        if (similar.isPresent()) {
+            return similar.get();
+        }
 
-            // Step 3: Extract search results from the response
-            List<SerpApiService.SearchResult> searchResults = searchResponse.getResults();
+        // Step 1c: Concurrent requests for the same topic share one pipeline run
+        return inFlight.execute(TopicNormalizer.normalize(topic), () -> research(topic));
+    }
 
-            // Step 4: Extract URLs
-            List<String> urls = searchResults.stream()
-                    .map(SerpApiService.SearchResult::getLink)
-                    .collect(Collectors.toList());
+    private ResearchQuery research(String topic) {
+        PipelineTimings timings = new PipelineTimings("research", topic);
+        boolean success = false;
+        try {
+            // Steps 2-4: Search, scrape and deduplicate, or reuse what content generation already
+            // gathered for this topic
+            ResearchCorpusService.Corpus corpus = corpusService.getCorpus(topic, timings);
 
-            // Step 5: Analyze and synthesize content
-            List<String> contents = contentAnalysisService.extractContentFromUrls(urls);
-            String synthesizedContent = contentAnalysisService.synthesizeContent(contents);
+            // Step 5: Generate comprehensive response using AI (single call or map-reduce by corpus size)
+            ResearchQuery result = timings.time("generate",
+                    () -> aiResponseGeneratorService.generateComprehensiveResponse(topic, corpus));
 
-            // Step 6: Generate comprehensive response using AI
-            ResearchQuery result = aiResponseGeneratorService.generateComprehensiveResponse(topic, synthesizedContent);
+            // A cancelled run (every caller gave up) must not store anything for the topic
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Research cancelled for topic: " + topic);
+            }
 
-            // Step 7: Store source URLs
-            result.setSourceUrls(urls);
+            // Step 6: Store source URLs
+            result.setSourceUrls(new ArrayList<>(corpus.urls()));
 
-            // Step 8: Save to database
-            repository.save(result);
+            // Step 7: Save to database. A fallback answer is only returned, so the topic is tried
+            // again on the next request instead of being served the fallback from then on
+            if (result.isDegraded()) {
+                timings.detail("result", "fallback");
+            } else {
+                timings.time("save", () -> repository.save(result));
+                topicCache.add(SemanticTopicCache.RESEARCH, topic, result.getId());
+            }
 
+            success = true;
             return result;
 
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Research failed for topic: " + topic + ". Error: " + e.getMessage());
+        } finally {
+            timings.report(meterRegistry, success);
+        }
+    }
+
+    private Optional<ResearchQuery> findSimilar(String topic) {
+        Optional<Long> id = topicCache.findSimilar(SemanticTopicCache.RESEARCH, topic);
+        if (id.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<ResearchQuery> query = repository.findById(id.get());
+        if (query.isEmpty()) {
+            // Deleted since it was indexed
+            topicCache.remove(SemanticTopicCache.RESEARCH, id.get());
         }
+        return query;
     }
 }
\ No newline at end of file
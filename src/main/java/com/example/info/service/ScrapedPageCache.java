@@ -0,0 +1,295 @@
+package com.example.info.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+@Service
+public class ScrapedPageCache {
+
+    @Value("${scraper.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${scraper.cache.path:./scrape-cache}")
+    private String cachePath;
+
+    @Value("${scraper.cache.max.size.mb:256}")
+    private long maxSizeMb;
+
+    @Value("${scraper.cache.fresh.seconds:600}")
+    private long freshSeconds;
+
+    private final ObjectMapper objectMapper;
+    private final CorpusSegmentStore corpusStore;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revalidations;
+
+    // Cache key -> entry size (JSON file plus any text held in the corpus store), in access order so
+    // the eldest entry is the least recently used
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private Path directory;
+
+    public ScrapedPageCache(ObjectMapper objectMapper, CorpusSegmentStore corpusStore, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.corpusStore = corpusStore;
+        this.hits = meterRegistry.counter("scraper.cache.hits");
+        this.misses = meterRegistry.counter("scraper.cache.misses");
+        this.revalidations = meterRegistry.counter("scraper.cache.revalidations");
+        Gauge.builder("scraper.cache.size.bytes", this, cache -> cache.totalBytes).register(meterRegistry);
+        Gauge.builder("scraper.cache.entries", this, ScrapedPageCache::entryCount).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void loadIndex() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        directory = Paths.get(cachePath);
+        Files.createDirectories(directory);
+
+        // Rebuild the LRU order from file modification times
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> entries = files
+                    .filter(path -> path.getFileName().toString().endsWith(".json"))
+                    .sorted(Comparator.comparingLong(ScrapedPageCache::lastModifiedMillis))
+                    .toList();
+            synchronized (this) {
+                for (Path entry : entries) {
+                    String fileName = entry.getFileName().toString();
+                    String key = fileName.substring(0, fileName.length() - 5);
+                    long size = Files.size(entry) + storedTextBytes(key);
+                    index.put(key, size);
+                    totalBytes += size;
+                }
+                evictIfNeeded();
+            }
+        }
+    }
+
+    public CachedPage get(String url) {
+        if (!enabled) {
+            return null;
+        }
+        String key = keyFor(url);
+        synchronized (this) {
+            if (index.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            CachedPage page = objectMapper.readValue(fileFor(key).toFile(), CachedPage.class);
+            if (!url.equals(page.getUrl())) {
+                return null;
+            }
+            if (page.getText() == null) {
+                // Text lives off-heap in the corpus store. It is decoded only when the caller reads
+                // it, so a stale entry the server answers with new content is never decoded at all.
+                long textKey = textKeyFor(url);
+                if (corpusStore.textBytes(textKey) == 0) {
+                    remove(key);
+                    return null;
+                }
+                page.textSource = () -> corpusStore.readText(textKey);
+            }
+            return page;
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    public boolean isFresh(CachedPage page) {
+        return System.currentTimeMillis() - page.getValidatedAt() < freshSeconds * 1000;
+    }
+
+    public void put(String url, String text, String etag, String lastModified) {
+        if (!enabled) {
+            return;
+        }
+        CachedPage page = new CachedPage();
+        page.setUrl(url);
+        page.setText(text);
+        page.setEtag(etag);
+        page.setLastModified(lastModified);
+        page.setValidatedAt(System.currentTimeMillis());
+        write(page, true);
+    }
+
+    public void markRevalidated(CachedPage page) {
+        revalidations.increment();
+        page.setValidatedAt(System.currentTimeMillis());
+        if (enabled) {
+            // The text is unchanged, so only the metadata needs rewriting
+            write(page, !corpusStore.isEnabled());
+        }
+    }
+
+    public void recordHit() {
+        hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    private void write(CachedPage page, boolean storeText) {
+        String key = keyFor(page.getUrl());
+        Path target = fileFor(key);
+        try {
+            // With the corpus store enabled only the small metadata record is written as JSON
+            CachedPage metadata = page;
+            if (!storeText || (corpusStore.isEnabled() && corpusStore.put(textKeyFor(page.getUrl()), page.getText()))) {
+                metadata = page.withoutText();
+            }
+
+            // Write-then-rename so concurrent readers never see a half-written entry
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            objectMapper.writeValue(temp.toFile(), metadata);
+            // Text held in the corpus store counts against the cache size just like text in the JSON
+            long size = Files.size(temp) + (metadata != page ? storedTextBytes(key) : 0);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            synchronized (this) {
+                Long previous = index.put(key, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evictIfNeeded();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to cache page: " + page.getUrl() + " - " + e.getMessage());
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Long size = index.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteEntry(key);
+    }
+
+    private synchronized void evictIfNeeded() {
+        long maxBytes = maxSizeMb * 1024 * 1024;
+        Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            deleteEntry(entry.getKey());
+        }
+    }
+
+    private synchronized int entryCount() {
+        return index.size();
+    }
+
+    private long storedTextBytes(String key) {
+        return corpusStore.isEnabled() ? corpusStore.textBytes(textKeyFor(HexFormat.of().parseHex(key))) : 0;
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + ".json");
+    }
+
+    private void deleteEntry(String key) {
+        if (corpusStore.isEnabled()) {
+            corpusStore.remove(textKeyFor(HexFormat.of().parseHex(key)));
+        }
+        deleteQuietly(fileFor(key));
+    }
+
+    private static String keyFor(String url) {
+        return HexFormat.of().formatHex(sha256(url));
+    }
+
+    // The corpus store is keyed by the first 8 bytes of the same SHA-256 used for file names
+    private static long textKeyFor(String url) {
+        return textKeyFor(sha256(url));
+    }
+
+    private static long textKeyFor(byte[] digest) {
+        return ByteBuffer.wrap(digest).getLong();
+    }
+
+    private static byte[] sha256(String url) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long lastModifiedMillis(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete cache entry: " + path + " - " + e.getMessage());
+        }
+    }
+
+    public static class CachedPage {
+        private String url;
+        private String text;
+        private String etag;
+        private String lastModified;
+        private long validatedAt;
+        private Supplier<String> textSource;
+
+        // Getters and setters
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+        public String getText() {
+            if (text == null && textSource != null) {
+                text = textSource.get();
+                textSource = null;
+            }
+            return text;
+        }
+        public void setText(String text) { this.text = text; }
+        public String getEtag() { return etag; }
+        public void setEtag(String etag) { this.etag = etag; }
+        public String getLastModified() { return lastModified; }
+        public void setLastModified(String lastModified) { this.lastModified = lastModified; }
+        public long getValidatedAt() { return validatedAt; }
+        public void setValidatedAt(long validatedAt) { this.validatedAt = validatedAt; }
+
+        CachedPage withoutText() {
+            CachedPage copy = new CachedPage();
+            copy.setUrl(url);
+            copy.setEtag(etag);
+            copy.setLastModified(lastModified);
+            copy.setValidatedAt(validatedAt);
+            return copy;
+        }
+    }
+}
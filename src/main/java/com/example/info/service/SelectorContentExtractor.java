@@ -0,0 +1,12 @@
+package com.example.info.service;
+
+import org.jsoup.nodes.Document;
+
+// The original extraction: every paragraph and heading on the page, boilerplate included
+public class SelectorContentExtractor implements ContentExtractor {
+
+    @Override
+    public String extract(Document doc) {
+        return doc.select("p, h1, h2, h3").text();
+    }
+}
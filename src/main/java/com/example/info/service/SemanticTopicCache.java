@@ -0,0 +1,242 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Finds earlier results for topics that mean the same thing as a new one. Each namespace
+// ("research", and "content" / "content-sectioned" per article mode) has its own HNSW index of topic embeddings labelled with entity ids;
+// a lookup returns the id of the most similar topic if it clears the similarity threshold.
+// Indexes are saved to disk periodically and on shutdown, and reloaded on startup.
+// Embedding is a remote call on the request path, so it fails open: a call that errors or takes
+// longer than embed.timeout.ms counts as a miss, and after a failure embedding is skipped for
+// embed.cooldown.seconds so a struggling provider doesn't add the timeout to every request.
+// Recent embeddings are kept for a while, so indexing a topic after its pipeline run reuses the
+// vector from the lookup that missed instead of embedding it again.
+@Service
+public class SemanticTopicCache {
+
+    public static final String RESEARCH = "research";
+    public static final String CONTENT = "content";
+    public static final String CONTENT_SECTIONED = "content-sectioned";
+
+    // Long enough to outlast the pipeline run between a missed lookup and indexing its result
+    private static final Duration RECENT_VECTOR_TTL = Duration.ofMinutes(15);
+    private static final int RECENT_VECTOR_MAX = 1000;
+
+    @Value("${topic.cache.enabled:true}")
+    private boolean enabled;
+
+    // openai (embedding model) or hashing (deterministic, offline)
+    @Value("${topic.cache.embedder:openai}")
+    private String embedderName;
+
+    @Value("${topic.cache.hashing.dimensions:256}")
+    private int hashingDimensions;
+
+    @Value("${topic.cache.similarity.threshold:0.92}")
+    private double similarityThreshold;
+
+    @Value("${topic.cache.embed.timeout.ms:1000}")
+    private long embedTimeoutMs;
+
+    @Value("${topic.cache.embed.cooldown.seconds:30}")
+    private long embedCooldownSeconds;
+
+    @Value("${topic.cache.path:./topic-cache}")
+    private String indexPath;
+
+    @Value("${topic.cache.save.interval.seconds:60}")
+    private long saveIntervalSeconds;
+
+    @Value("${topic.cache.hnsw.m:16}")
+    private int m;
+
+    @Value("${topic.cache.hnsw.ef.construction:100}")
+    private int efConstruction;
+
+    @Value("${topic.cache.hnsw.ef.search:50}")
+    private int efSearch;
+
+    private final ObjectProvider<EmbeddingModel> embeddingModel;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter embedFailures;
+    private final ExpiringCache<String, float[]> recentVectors;
+    private final Map<String, HnswIndex> indexes = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "topic-index-saver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService embedExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // System.nanoTime() before which embedding is skipped; 0 when it isn't
+    private volatile long embedBlockedUntil;
+    private TopicEmbedder embedder;
+    private Path directory;
+
+    public SemanticTopicCache(ObjectProvider<EmbeddingModel> embeddingModel, MeterRegistry meterRegistry) {
+        this.embeddingModel = embeddingModel;
+        this.hits = meterRegistry.counter("topic.cache.hits");
+        this.misses = meterRegistry.counter("topic.cache.misses");
+        this.embedFailures = meterRegistry.counter("topic.cache.embed.failures");
+        this.recentVectors = new ExpiringCache<>("topic.cache.vectors", RECENT_VECTOR_TTL, RECENT_VECTOR_MAX,
+                meterRegistry);
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        embedder = "hashing".equalsIgnoreCase(embedderName)
+                ? new HashingTopicEmbedder(hashingDimensions)
+                : new OpenAiTopicEmbedder(embeddingModel.getObject());
+        directory = Paths.get(indexPath);
+        Files.createDirectories(directory);
+        for (String namespace : List.of(RESEARCH, CONTENT, CONTENT_SECTIONED)) {
+            Path file = fileFor(namespace);
+            if (Files.exists(file)) {
+                try {
+                    indexes.put(namespace, HnswIndex.load(file));
+                } catch (IOException e) {
+                    System.err.println("Discarding unreadable topic index " + file + ": " + e.getMessage());
+                }
+            }
+        }
+        saver.scheduleWithFixedDelay(this::saveDirty, saveIntervalSeconds, saveIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void close() {
+        saver.shutdownNow();
+        embedExecutor.shutdownNow();
+        saveDirty();
+    }
+
+    // Id of the stored entity whose topic is most similar to this one, if similar enough
+    public Optional<Long> findSimilar(String namespace, String topic) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        HnswIndex index = indexes.get(namespace);
+        float[] vector = embed(topic);
+        if (index == null || vector == null || index.dimensions() != vector.length) {
+            misses.increment();
+            return Optional.empty();
+        }
+        List<HnswIndex.Match> matches = index.search(vector, 1, efSearch);
+        if (matches.isEmpty() || matches.get(0).similarity() < similarityThreshold) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(matches.get(0).label());
+    }
+
+    public void add(String namespace, String topic, Long entityId) {
+        if (!enabled || entityId == null) {
+            return;
+        }
+        float[] vector = embed(topic);
+        if (vector == null) {
+            return;
+        }
+        // A different embedder (dimension change) makes the old index useless, so start over
+        HnswIndex index = indexes.compute(namespace, (key, existing) ->
+                existing != null && existing.dimensions() == vector.length
+                        ? existing
+                        : new HnswIndex(vector.length, m, efConstruction));
+        index.add(vector, entityId);
+        dirty.add(namespace);
+    }
+
+    // For entities that have been deleted since they were indexed
+    public void remove(String namespace, Long entityId) {
+        HnswIndex index = indexes.get(namespace);
+        if (index != null && entityId != null) {
+            index.remove(entityId);
+            dirty.add(namespace);
+        }
+    }
+
+    // Without an embedding the request simply runs the full pipeline
+    private float[] embed(String topic) {
+        String normalized = TopicNormalizer.normalize(topic);
+        float[] recent = recentVectors.getIfPresent(normalized);
+        if (recent != null) {
+            return recent;
+        }
+        long blockedUntil = embedBlockedUntil;
+        if (blockedUntil != 0 && blockedUntil - System.nanoTime() > 0) {
+            return null;
+        }
+        Future<float[]> future = embedExecutor.submit(() -> embedder.embed(normalized));
+        try {
+            float[] vector = future.get(embedTimeoutMs, TimeUnit.MILLISECONDS);
+            embedBlockedUntil = 0;
+            if (vector != null) {
+                recentVectors.put(normalized, vector);
+            }
+            return vector;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            embedFailed("timed out after " + embedTimeoutMs + "ms");
+        } catch (ExecutionException e) {
+            embedFailed(e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+        return null;
+    }
+
+    private void embedFailed(String reason) {
+        embedFailures.increment();
+        embedBlockedUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(embedCooldownSeconds);
+        System.err.println("Topic embedding failed, skipping the topic cache for "
+                + embedCooldownSeconds + "s: " + reason);
+    }
+
+    private void saveDirty() {
+        for (String namespace : List.copyOf(dirty)) {
+            dirty.remove(namespace);
+            try {
+                indexes.get(namespace).save(fileFor(namespace));
+            } catch (IOException e) {
+                dirty.add(namespace);
+                System.err.println("Failed to save topic index " + namespace + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Path fileFor(String namespace) {
+        return directory.resolve(namespace + ".hnsw");
+    }
+}
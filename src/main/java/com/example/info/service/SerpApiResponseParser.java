@@ -0,0 +1,110 @@
+package com.example.info.service;
+
+import com.example.info.service.SerpApiService.SearchMetadata;
+import com.example.info.service.SerpApiService.SearchResult;
+import com.example.info.service.SerpApiService.SerpApiResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Token-level parser for SerpApi search responses. Only organic_results and search_metadata are
+// read; every other section (ads, knowledge graph, related questions, ...) is skipped without
+// being materialised, and results are filled straight into the response objects.
+public class SerpApiResponseParser {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public SerpApiResponse parse(String json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    public SerpApiResponse parse(byte[] json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    public SerpApiResponse parse(InputStream json) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    private SerpApiResponse parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+
+        List<SearchResult> results = new ArrayList<>();
+        SearchMetadata metadata = new SearchMetadata();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("organic_results") && value == JsonToken.START_ARRAY) {
+                parseOrganicResults(parser, results);
+            } else if (field.equals("search_metadata") && value == JsonToken.START_OBJECT) {
+                parseSearchMetadata(parser, metadata);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        SerpApiResponse response = new SerpApiResponse();
+        // Responses are shared between cached callers, so don't hand out a mutable list
+        response.setResults(List.copyOf(results));
+        response.setSearchMetadata(metadata);
+        return response;
+    }
+
+    private void parseOrganicResults(JsonParser parser, List<SearchResult> results) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            SearchResult result = new SearchResult();
+            result.setTitle("");
+            result.setLink("");
+            result.setSnippet("");
+            result.setPosition(results.size() + 1);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "title" -> result.setTitle(parser.getValueAsString(""));
+                    case "link" -> result.setLink(parser.getValueAsString(""));
+                    case "snippet" -> result.setSnippet(parser.getValueAsString(""));
+                    case "position" -> result.setPosition(parser.getValueAsInt(results.size() + 1));
+                    default -> { }
+                }
+                // No-op for scalars; skips unexpected or unused nested values
+                parser.skipChildren();
+            }
+            results.add(result);
+        }
+    }
+
+    private void parseSearchMetadata(JsonParser parser, SearchMetadata metadata) throws IOException {
+        metadata.setQueryDisplayed("");
+        metadata.setTotalResults("0");
+        metadata.setTimeTaken(0.0);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "query_displayed" -> metadata.setQueryDisplayed(parser.getValueAsString(""));
+                case "total_results" -> metadata.setTotalResults(parser.getValueAsString("0"));
+                case "time_taken_displayed" -> metadata.setTimeTaken(parser.getValueAsDouble(0.0));
+                default -> { }
+            }
+            parser.skipChildren();
+        }
+    }
+}
@@ -1,21 +1,68 @@
 package com.example.info.service;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import java.util.ArrayList;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class SerpApiService {
 
     @Value("${serpapi.api.key:demo_key}")
     private String serpApiKey;
+
+    @Value("${serpapi.cache.ttl.seconds:900}")
+    private long cacheTtlSeconds;
+
+    @Value("${serpapi.cache.max.entries:500}")
+    private int cacheMaxEntries;
+
+    @Value("${serpapi.timeout.ms:30000}")
+    private long timeoutMs;
+
+    // Delay before a duplicate request is sent for a slow search; 0 disables hedging
+    @Value("${serpapi.hedge.delay.ms:0}")
+    private long hedgeDelayMs;
 @Autowired
-    RestTemplate restTemplate;
+    MeterRegistry meterRegistry;
+
+    // Normalised query -> response; concurrent misses for the same query share one paid API call
+    private ExpiringCache<String, SerpApiResponse> searchCache;
+    private final SerpApiResponseParser responseParser = new SerpApiResponseParser();
+    private HttpClient httpClient;
+    private Timer requestTimer;
+    private Counter hedgesFired;
+    private Counter hedgesWon;
+
+    @PostConstruct
+    void initCache() {
+        searchCache = new ExpiringCache<>("serpapi.cache",
+                Duration.ofSeconds(cacheTtlSeconds), cacheMaxEntries, meterRegistry);
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        requestTimer = meterRegistry.timer("serpapi.request");
+        hedgesFired = meterRegistry.counter("serpapi.hedge.fired");
+        hedgesWon = meterRegistry.counter("serpapi.hedge.won");
+    }
+
     private final String serpApiUrl = "https://serpapi.com/search.json?q=%s&api_key=%s&num=10&hl=en";
     // In SerpApiService.java - add this method
     public List<SearchResult> searchWebResults(String query) {
@@ -24,48 +71,83 @@ public class SerpApiService {
     }
     public SerpApiResponse searchWeb(String query) {
         try {
-            String url = String.format(serpApiUrl, query, serpApiKey);
-            String response = restTemplate.getForObject(url, String.class);
-            return parseSearchResponse(response);
-        } catch (Exception e) {
-            throw new RuntimeException("SERP API search failed: " + e.getMessage());
+            return searchWebAsync(query).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
         }
     }
 
-    private SerpApiResponse parseSearchResponse(String response) {
-        SerpApiResponse apiResponse = new SerpApiResponse();
-        JSONObject json = new JSONObject(response);
-
-        // Parse organic results
-        JSONArray organicResults = json.optJSONArray("organic_results");
-        List<SearchResult> results = new ArrayList<>();
-
-        if (organicResults != null) {
-            for (int i = 0; i < organicResults.length(); i++) {
-                JSONObject result = organicResults.getJSONObject(i);
-                SearchResult searchResult = new SearchResult();
-                searchResult.setTitle(result.optString("title", ""));
-                searchResult.setLink(result.optString("link", ""));
-                searchResult.setSnippet(result.optString("snippet", ""));
-                searchResult.setPosition(result.optInt("position", i + 1));
-                results.add(searchResult);
-            }
+    // Doesn't hold a thread while the request is in flight
+    public CompletableFuture<SerpApiResponse> searchWebAsync(String query) {
+        return searchCache.getAsync(TopicNormalizer.normalize(query), () -> fetchSearch(query));
+    }
+
+    private CompletableFuture<SerpApiResponse> fetchSearch(String query) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(String.format(serpApiUrl,
+                        URLEncoder.encode(query, StandardCharsets.UTF_8),
+                        URLEncoder.encode(serpApiKey, StandardCharsets.UTF_8))))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .GET()
+                .build();
+        if (hedgeDelayMs <= 0) {
+            return send(request, new CopyOnWriteArrayList<>());
         }
+        return sendHedged(request);
+    }
+
+    // Sends the request and, if it hasn't answered after the hedge delay, a duplicate of it. The
+    // first successful response wins and the other exchange is cancelled; the search only fails
+    // once every request that was sent has failed.
+    private CompletableFuture<SerpApiResponse> sendHedged(HttpRequest request) {
+        CompletableFuture<SerpApiResponse> winner = new CompletableFuture<>();
+        List<CompletableFuture<?>> exchanges = new CopyOnWriteArrayList<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
 
-        apiResponse.setResults(results);
-        apiResponse.setSearchMetadata(parseSearchMetadata(json));
-        return apiResponse;
+        send(request, exchanges).whenComplete((response, error) -> settle(winner, outstanding, response, error, false));
+        CompletableFuture.runAsync(() -> {
+            // Only hedge while the primary is still in flight
+            if (winner.isDone() || outstanding.getAndUpdate(n -> n > 0 ? n + 1 : n) == 0) {
+                return;
+            }
+            hedgesFired.increment();
+            send(request, exchanges).whenComplete((response, error) -> settle(winner, outstanding, response, error, true));
+        }, CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS));
+
+        winner.whenComplete((response, error) -> exchanges.forEach(exchange -> exchange.cancel(true)));
+        return winner;
     }
 
-    private SearchMetadata parseSearchMetadata(JSONObject json) {
-        SearchMetadata metadata = new SearchMetadata();
-        JSONObject searchMetadata = json.optJSONObject("search_metadata");
-        if (searchMetadata != null) {
-            metadata.setQueryDisplayed(searchMetadata.optString("query_displayed", ""));
-            metadata.setTotalResults(searchMetadata.optString("total_results", "0"));
-            metadata.setTimeTaken(searchMetadata.optDouble("time_taken_displayed", 0.0));
+    private void settle(CompletableFuture<SerpApiResponse> winner, AtomicInteger outstanding,
+                        SerpApiResponse response, Throwable error, boolean hedge) {
+        if (error == null) {
+            if (winner.complete(response) && hedge) {
+                hedgesWon.increment();
+            }
+        } else if (outstanding.decrementAndGet() == 0) {
+            winner.completeExceptionally(error);
         }
-        return metadata;
+    }
+
+    private CompletableFuture<SerpApiResponse> send(HttpRequest request, List<CompletableFuture<?>> exchanges) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        exchanges.add(exchange);
+        return exchange.handle((response, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                throw new RuntimeException("SERP API search failed: " + cause.getMessage());
+            }
+            requestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (response.statusCode() >= 400) {
+                throw new RuntimeException("SERP API search failed: HTTP " + response.statusCode());
+            }
+            try {
+                return responseParser.parse(response.body());
+            } catch (Exception e) {
+                throw new RuntimeException("SERP API search failed: " + e.getMessage());
+            }
+        });
     }
 
     // Inner classes for structured responses
@@ -0,0 +1,121 @@
+package com.example.info.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pulls the top-level fields out of a JSON object while it is still being streamed. Each chunk is
+// fed to Jackson's non-blocking parser, and a field is returned as soon as its value is complete:
+// strings as String, arrays as List<String>. Anything before the opening brace (a ```json fence,
+// a stray sentence) and anything after the closing brace is ignored. Not thread-safe.
+public class StreamingJsonFieldExtractor {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private boolean started;
+    private boolean complete;
+    private boolean failed;
+
+    // Position inside the object being parsed
+    private int depth;
+    private String currentField;
+    private List<String> currentArray;
+
+    public StreamingJsonFieldExtractor() {
+        try {
+            parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Field(String name, Object value) {
+    }
+
+    // Returns the fields completed by this chunk, in order
+    public List<Field> feed(String chunk) {
+        if (complete || failed || chunk == null || chunk.isEmpty()) {
+            return List.of();
+        }
+        int from = 0;
+        if (!started) {
+            from = chunk.indexOf('{');
+            if (from < 0) {
+                return List.of();
+            }
+            started = true;
+        }
+
+        List<Field> completed = new ArrayList<>();
+        try {
+            byte[] bytes = chunk.substring(from).getBytes(StandardCharsets.UTF_8);
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (!complete && (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE && token != null) {
+                handle(token, completed);
+            }
+        } catch (IOException e) {
+            // Malformed output; callers fall back to treating the text as unstructured
+            failed = true;
+        }
+        return completed;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public Map<String, Object> fields() {
+        return fields;
+    }
+
+    private void handle(JsonToken token, List<Field> completed) throws IOException {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> {
+                depth++;
+                if (depth == 2 && token == JsonToken.START_ARRAY) {
+                    currentArray = new ArrayList<>();
+                }
+            }
+            case END_OBJECT, END_ARRAY -> {
+                depth--;
+                if (depth == 0) {
+                    complete = true;
+                } else if (depth == 1 && currentArray != null) {
+                    complete(currentArray, completed);
+                    currentArray = null;
+                }
+            }
+            case FIELD_NAME -> {
+                if (depth == 1) {
+                    currentField = parser.currentName();
+                }
+            }
+            case VALUE_NULL -> {
+                // Treated as absent, so callers' defaults apply
+            }
+            default -> {
+                // A scalar value: either a top-level field or an array item
+                if (depth == 1) {
+                    complete(parser.getValueAsString(parser.getText()), completed);
+                } else if (depth == 2 && currentArray != null) {
+                    currentArray.add(parser.getValueAsString(parser.getText()));
+                }
+            }
+        }
+    }
+
+    private void complete(Object value, List<Field> completed) {
+        fields.put(currentField, value);
+        completed.add(new Field(currentField, value));
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.info.service;
+
+// Rough token arithmetic for prompt budgeting. Uses the common ~4 characters per token
+// approximation for English text so no tokenizer has to run on the request path.
+public final class TokenEstimator {
+
+    public static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimateTokens(CharSequence text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public static int charsForTokens(int tokens) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) tokens * CHARS_PER_TOKEN);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.info.service;
+
+// Maps a topic to a fixed-length vector; similar topics should get vectors with high cosine similarity
+public interface TopicEmbedder {
+
+    float[] embed(String topic);
+}
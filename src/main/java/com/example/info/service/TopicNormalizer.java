@@ -0,0 +1,28 @@
+package com.example.info.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+// Canonical form of user-entered topics and queries, used as cache and coalescing keys so that
+// "Generative AI", " generative  ai " and "GENERATIVE AI?" are treated as the same request
+public final class TopicNormalizer {
+
+    private TopicNormalizer() {
+    }
+
+    public static String normalize(String topic) {
+        if (topic == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(topic, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+        // Trailing punctuation doesn't change what is being searched for
+        int end = normalized.length();
+        while (end > 0 && ".?!,;:".indexOf(normalized.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return normalized.substring(0, end).trim();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.info.benchmark;
+
+import com.example.info.service.ContentExtractor;
+import com.example.info.service.ReadabilityContentExtractor;
+import com.example.info.service.SelectorContentExtractor;
+import org.jsoup.Jsoup;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares extraction time and output size of the two extraction modes.
+// Run with saved HTML files as arguments, or without arguments to use generated pages.
+public class ExtractionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        List<String> pages = new ArrayList<>();
+        for (String file : args) {
+            pages.add(Files.readString(Path.of(file)));
+        }
+        if (pages.isEmpty()) {
+            pages.add(generatePage(8, 40));
+            pages.add(generatePage(30, 150));
+            pages.add(generatePage(120, 600));
+        }
+
+        run("selector", new SelectorContentExtractor(), pages);
+        run("readability", new ReadabilityContentExtractor(), pages);
+    }
+
+    private static void run(String mode, ContentExtractor extractor, List<String> pages) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String html : pages) {
+                extractor.extract(Jsoup.parse(html));
+            }
+        }
+
+        long parseNanos = 0;
+        long extractNanos = 0;
+        long outputChars = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            for (String html : pages) {
+                long start = System.nanoTime();
+                var doc = Jsoup.parse(html);
+                long parsed = System.nanoTime();
+                String text = extractor.extract(doc);
+                extractNanos += System.nanoTime() - parsed;
+                parseNanos += parsed - start;
+                outputChars += text.length();
+            }
+        }
+
+        long extractions = (long) MEASURED_ROUNDS * pages.size();
+        System.out.printf("%-12s parse %8.1f us  extract %8.1f us  output %8d chars/page%n",
+                mode,
+                parseNanos / 1000.0 / extractions,
+                extractNanos / 1000.0 / extractions,
+                outputChars / extractions);
+    }
+
+    // A typical article page: navigation, cookie banner, sidebar links, the article and a footer
+    private static String generatePage(int articleParagraphs, int boilerplateLinks) {
+        StringBuilder html = new StringBuilder("<html><head><title>Bench</title></head><body>");
+        html.append("<div class=\"cookie-banner\"><p>We use cookies to improve your experience. ")
+                .append("By continuing to browse you accept our cookie policy and privacy terms.</p></div>");
+        html.append("<nav><ul>");
+        for (int i = 0; i < boilerplateLinks / 2; i++) {
+            html.append("<li><a href=\"/section/").append(i).append("\">Section ").append(i).append("</a></li>");
+        }
+        html.append("</ul></nav><div class=\"layout\"><div class=\"sidebar\"><h3>Related</h3>");
+        for (int i = 0; i < boilerplateLinks / 2; i++) {
+            html.append("<p><a href=\"/related/").append(i).append("\">Related story number ")
+                    .append(i).append(" you might also like</a></p>");
+        }
+        html.append("</div><article class=\"post-content\"><h1>Generative AI explained</h1>");
+        for (int i = 0; i < articleParagraphs; i++) {
+            html.append("<p>Paragraph ").append(i)
+                    .append(" explains how generative models learn patterns from data, how they are trained, ")
+                    .append("evaluated and deployed, and what trade-offs teams face when adopting them in production.</p>");
+        }
+        html.append("</article></div><footer><p>Copyright 2024 Example Media. All rights reserved. ")
+                .append("Terms of service, privacy policy and contact information.</p></footer></body></html>");
+        return html.toString();
+    }
+}
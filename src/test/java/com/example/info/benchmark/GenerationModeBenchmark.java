@@ -0,0 +1,112 @@
+package com.example.info.benchmark;
+
+import com.example.info.service.KeywordClassifier;
+import com.example.info.service.LlmGateway;
+import com.example.info.service.LlmResponseCache;
+import com.example.info.service.OpenAiService;
+import com.example.info.service.PassageRanker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import java.util.List;
+import java.util.Map;
+
+// Compares wall-clock time of single-shot and sectioned article generation against a local stub
+// model that "generates" at a fixed rate: a fixed time to first token plus a delay per output token.
+public class GenerationModeBenchmark {
+
+    private static final long FIRST_TOKEN_MS = 300;
+    private static final double MS_PER_TOKEN = 4;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            // Caching would turn every round after the first into a lookup
+            context.getEnvironment().getPropertySources().addFirst(
+                    new MapPropertySource("benchmark", Map.of("llm.cache.enabled", "false")));
+            context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+            context.registerBean(ChatClient.Builder.class, () -> ChatClient.builder(new StubChatModel()));
+            context.registerBean(ObjectMapper.class, () -> new ObjectMapper());
+            context.register(LlmResponseCache.class, LlmGateway.class, KeywordClassifier.class, PassageRanker.class,
+                    OpenAiService.class);
+            context.refresh();
+
+            OpenAiService openAiService = context.getBean(OpenAiService.class);
+            String research = "Generative AI research notes. ".repeat(200);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                OpenAiService.ContentGenerationResponse single = openAiService.generateContent("generative ai", research);
+                long singleMs = (System.nanoTime() - start) / 1_000_000;
+
+                start = System.nanoTime();
+                OpenAiService.ContentGenerationResponse sectioned =
+                        openAiService.generateContentSectioned("generative ai", research);
+                long sectionedMs = (System.nanoTime() - start) / 1_000_000;
+
+                System.out.printf("single    %5d ms  %5d words%n", singleMs, wordCount(single.getArticleText()));
+                System.out.printf("sectioned %5d ms  %5d words%n", sectionedMs, wordCount(sectioned.getArticleText()));
+            }
+        }
+    }
+
+    private static int wordCount(String text) {
+        return text.isBlank() ? 0 : text.trim().split("\\s+").length;
+    }
+
+    // Answers the three prompt shapes OpenAiService sends, taking as long as a model emitting
+    // that many tokens would
+    private static class StubChatModel implements ChatModel {
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            String text = prompt.getContents();
+            String reply;
+            if (text.contains("planning an article")) {
+                reply = """
+                        {"title": "Generative AI explained", "summary": "An overview of generative AI.",
+                         "sections": ["Foundations: what generative models are",
+                                      "Architectures: transformers and diffusion",
+                                      "Applications: where it is used today",
+                                      "Risks: limitations and safety",
+                                      "Outlook: where the field is going"],
+                         "diagramIdeas": ["Model pipeline"], "keyInsights": ["Scale matters"],
+                         "relatedTopics": ["Machine learning"]}
+                        """;
+            } else if (text.contains("writing one section")) {
+                reply = paragraphs(200);
+            } else {
+                reply = "{\"title\": \"Generative AI explained\", \"summary\": \"An overview of generative AI.\","
+                        + " \"diagramIdeas\": [\"Model pipeline\"], \"keyInsights\": [\"Scale matters\"],"
+                        + " \"relatedTopics\": [\"Machine learning\"], \"articleText\": \"" + paragraphs(1000) + "\"}";
+            }
+            // Roughly 4 characters per token
+            sleep(FIRST_TOKEN_MS + (long) (reply.length() / 4 * MS_PER_TOKEN));
+            return new ChatResponse(List.of(new Generation(new AssistantMessage(reply))));
+        }
+
+        private static String paragraphs(int words) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < words; i++) {
+                text.append(i % 40 == 39 ? "model. " : "model ");
+            }
+            return text.toString().trim();
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
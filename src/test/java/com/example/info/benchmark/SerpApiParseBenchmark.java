@@ -0,0 +1,142 @@
+package com.example.info.benchmark;
+
+import com.example.info.service.SerpApiResponseParser;
+import com.example.info.service.SerpApiService.SearchMetadata;
+import com.example.info.service.SerpApiService.SearchResult;
+import com.example.info.service.SerpApiService.SerpApiResponse;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares CPU time and allocation per SerpApi response between the previous org.json tree
+// parsing and the streaming parser. Run with a saved response file as argument, or without
+// arguments to use a generated payload shaped like a real search response.
+public class SerpApiParseBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20_000;
+    private static final int MEASURED_ROUNDS = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        String payload = args.length > 0
+                ? java.nio.file.Files.readString(java.nio.file.Path.of(args[0]))
+                : generatePayload();
+        System.out.printf("payload %d chars%n", payload.length());
+
+        SerpApiResponseParser streaming = new SerpApiResponseParser();
+        run("org.json", payload, SerpApiParseBenchmark::parseWithOrgJson);
+        run("streaming", payload, json -> {
+            try {
+                return streaming.parse(json);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    private static void run(String name, String payload, java.util.function.Function<String, SerpApiResponse> parser) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += parser.apply(payload).getResults().size();
+        }
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long cpuBefore = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            sink += parser.apply(payload).getResults().size();
+        }
+        long cpu = threads.getCurrentThreadCpuTime() - cpuBefore;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-10s %8.2f us/response  %10d bytes allocated/response  (%d)%n",
+                name, cpu / 1000.0 / MEASURED_ROUNDS, allocated / MEASURED_ROUNDS, sink);
+    }
+
+    // The parsing SerpApiService used before the streaming parser
+    private static SerpApiResponse parseWithOrgJson(String response) {
+        SerpApiResponse apiResponse = new SerpApiResponse();
+        JSONObject json = new JSONObject(response);
+
+        JSONArray organicResults = json.optJSONArray("organic_results");
+        List<SearchResult> results = new ArrayList<>();
+        if (organicResults != null) {
+            for (int i = 0; i < organicResults.length(); i++) {
+                JSONObject result = organicResults.getJSONObject(i);
+                SearchResult searchResult = new SearchResult();
+                searchResult.setTitle(result.optString("title", ""));
+                searchResult.setLink(result.optString("link", ""));
+                searchResult.setSnippet(result.optString("snippet", ""));
+                searchResult.setPosition(result.optInt("position", i + 1));
+                results.add(searchResult);
+            }
+        }
+        apiResponse.setResults(results);
+
+        SearchMetadata metadata = new SearchMetadata();
+        JSONObject searchMetadata = json.optJSONObject("search_metadata");
+        if (searchMetadata != null) {
+            metadata.setQueryDisplayed(searchMetadata.optString("query_displayed", ""));
+            metadata.setTotalResults(searchMetadata.optString("total_results", "0"));
+            metadata.setTimeTaken(searchMetadata.optDouble("time_taken_displayed", 0.0));
+        }
+        apiResponse.setSearchMetadata(metadata);
+        return apiResponse;
+    }
+
+    private static String generatePayload() {
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"search_metadata\":{\"id\":\"64f1c2\",\"status\":\"Success\",")
+                .append("\"json_endpoint\":\"https://serpapi.com/searches/64f1c2.json\",")
+                .append("\"created_at\":\"2024-05-01 10:00:00 UTC\",\"total_time_taken\":1.42,")
+                .append("\"query_displayed\":\"generative ai\",\"total_results\":\"1250000000\",")
+                .append("\"time_taken_displayed\":0.41},");
+        json.append("\"search_parameters\":{\"engine\":\"google\",\"q\":\"generative ai\",\"hl\":\"en\",\"num\":\"10\"},");
+        json.append("\"ads\":[");
+        for (int i = 0; i < 4; i++) {
+            json.append(i > 0 ? "," : "").append("{\"position\":").append(i + 1)
+                    .append(",\"title\":\"Sponsored generative AI platform ").append(i)
+                    .append("\",\"link\":\"https://ads.example.com/").append(i)
+                    .append("\",\"description\":\"").append("Build and deploy models faster. ".repeat(6))
+                    .append("\",\"sitelinks\":[{\"title\":\"Pricing\",\"link\":\"https://ads.example.com/pricing\"},")
+                    .append("{\"title\":\"Docs\",\"link\":\"https://ads.example.com/docs\"}]}");
+        }
+        json.append("],\"knowledge_graph\":{\"title\":\"Generative artificial intelligence\",\"type\":\"Field\",")
+                .append("\"description\":\"").append("Generative AI creates text, images and other media. ".repeat(12))
+                .append("\",\"source\":{\"name\":\"Wikipedia\",\"link\":\"https://en.wikipedia.org/wiki/Generative_AI\"},")
+                .append("\"people_also_search_for\":[");
+        for (int i = 0; i < 8; i++) {
+            json.append(i > 0 ? "," : "").append("{\"name\":\"Related entity ").append(i)
+                    .append("\",\"link\":\"https://www.google.com/search?q=entity").append(i)
+                    .append("\",\"image\":\"data:image/jpeg;base64,").append("QUJDREVGR0g=".repeat(40)).append("\"}");
+        }
+        json.append("]},\"related_questions\":[");
+        for (int i = 0; i < 6; i++) {
+            json.append(i > 0 ? "," : "").append("{\"question\":\"What is generative AI question ").append(i)
+                    .append("?\",\"snippet\":\"").append("An answer paragraph with details. ".repeat(8))
+                    .append("\",\"link\":\"https://example.com/q").append(i).append("\"}");
+        }
+        json.append("],\"organic_results\":[");
+        for (int i = 0; i < 10; i++) {
+            json.append(i > 0 ? "," : "").append("{\"position\":").append(i + 1)
+                    .append(",\"title\":\"Generative AI guide part ").append(i)
+                    .append("\",\"link\":\"https://site").append(i).append(".example.com/generative-ai\",")
+                    .append("\"displayed_link\":\"https://site").append(i).append(".example.com\",")
+                    .append("\"snippet\":\"").append("Generative AI models learn patterns from data. ".repeat(4))
+                    .append("\",\"snippet_highlighted_words\":[\"Generative AI\"],")
+                    .append("\"rich_snippet\":{\"top\":{\"extensions\":[\"2024\",\"10 min read\"]}},")
+                    .append("\"sitelinks\":{\"inline\":[{\"title\":\"Overview\",\"link\":\"https://site").append(i)
+                    .append(".example.com/overview\"}]}}");
+        }
+        json.append("],\"related_searches\":[");
+        for (int i = 0; i < 8; i++) {
+            json.append(i > 0 ? "," : "").append("{\"query\":\"generative ai related ").append(i)
+                    .append("\",\"link\":\"https://www.google.com/search?q=related").append(i).append("\"}");
+        }
+        json.append("],\"pagination\":{\"current\":1,\"next\":\"https://www.google.com/search?q=generative+ai&start=10\"}}");
+        return json.toString();
+    }
+}
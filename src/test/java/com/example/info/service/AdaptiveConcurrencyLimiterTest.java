@@ -0,0 +1,82 @@
+package com.example.info.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void growsWhileSaturatedButNeverPastTheMaximum() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 4, 10_000, 0.5);
+        for (int round = 0; round < 50; round++) {
+            int slots = limiter.limit();
+            long start = System.nanoTime();
+            for (int i = 0; i < slots; i++) {
+                assertTrue(limiter.acquire(0));
+            }
+            for (int i = 0; i < slots; i++) {
+                limiter.release(start, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+            }
+        }
+        assertEquals(4, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void doesNotGrowWhileMostlyIdle() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 32, 10_000, 0.5);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.acquire(0));
+            limiter.release(System.nanoTime(), AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void dropsShrinkTheLimitMultiplicativelyDownToTheMinimum() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 2, 32, 10_000, 0.5);
+        int[] expected = {4, 2, 2};
+        for (int limit : expected) {
+            Thread.sleep(1);
+            assertTrue(limiter.acquire(0));
+            limiter.release(System.nanoTime(), AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+            assertEquals(limit, limiter.limit());
+        }
+    }
+
+    @Test
+    void aBurstOfDropsShrinksTheLimitOnce() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 32, 10_000, 0.5);
+        Thread.sleep(1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.acquire(0));
+        }
+        for (int i = 0; i < 4; i++) {
+            limiter.release(start, AdaptiveConcurrencyLimiter.Outcome.DROPPED);
+        }
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void slowSuccessesCountAsDrops() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 32, 1, 0.5);
+        Thread.sleep(1);
+        long start = System.nanoTime();
+        assertTrue(limiter.acquire(0));
+        Thread.sleep(5);
+        limiter.release(start, AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void acquireGivesUpWhenNoSlotFreesInTime() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 10_000, 0.5);
+        assertTrue(limiter.acquire(0));
+        assertFalse(limiter.acquire(20));
+        assertEquals(1, limiter.inFlight());
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.info.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HostLatencyTrackerTest {
+
+    @Test
+    void bucketsBoundEveryValueWithinTheirPrecision() {
+        for (long value = 0; value < 65_536; value++) {
+            long upper = HostLatencyTracker.bucketUpperBound(HostLatencyTracker.bucketIndex(value));
+            assertTrue(upper > value, value + " falls above its bucket");
+            assertTrue(upper <= Math.max(value + 1, value * 1.125 + 1), value + " bucket is too wide: " + upper);
+        }
+    }
+
+    @Test
+    void timeoutFollowsThePercentileOnceThereAreEnoughSamples() {
+        HostLatencyTracker tracker = newTracker(300);
+        for (int i = 0; i < 19; i++) {
+            tracker.recordSuccess("example.com", 100);
+        }
+        assertEquals(5000, tracker.timeoutFor("example.com", 5000));
+
+        tracker.recordSuccess("example.com", 100);
+        // p95 lands in the 96-104ms bucket, times the 1.5 multiplier
+        assertEquals(156, tracker.timeoutFor("example.com", 5000));
+        assertEquals(5000, tracker.timeoutFor("other.com", 5000));
+    }
+
+    @Test
+    void hostsFailingTooOftenAreUnhealthy() {
+        HostLatencyTracker tracker = newTracker(300);
+        for (int i = 0; i < 10; i++) {
+            tracker.recordSuccess("example.com", 100);
+            tracker.recordFailure("example.com");
+        }
+        assertTrue(tracker.isHealthy("example.com"));
+        tracker.recordFailure("example.com");
+        assertFalse(tracker.isHealthy("example.com"));
+    }
+
+    @Test
+    void samplesAgeOutAfterTwoWindows() throws Exception {
+        HostLatencyTracker tracker = newTracker(1);
+        for (int i = 0; i < 20; i++) {
+            tracker.recordSuccess("example.com", 2000);
+        }
+
+        // One window later the samples are still counted, from the previous window
+        Thread.sleep(1100);
+        assertEquals(3072, tracker.timeoutFor("example.com", 5000));
+
+        Thread.sleep(1100);
+        assertEquals(5000, tracker.timeoutFor("example.com", 5000));
+    }
+
+    private static HostLatencyTracker newTracker(long windowSeconds) {
+        HostLatencyTracker tracker = new HostLatencyTracker();
+        ReflectionTestUtils.setField(tracker, "percentile", 0.95);
+        ReflectionTestUtils.setField(tracker, "multiplier", 1.5);
+        ReflectionTestUtils.setField(tracker, "minTimeoutMs", 10);
+        ReflectionTestUtils.setField(tracker, "maxTimeoutMs", 10_000);
+        ReflectionTestUtils.setField(tracker, "minSamples", 20);
+        ReflectionTestUtils.setField(tracker, "maxFailureRate", 0.5);
+        ReflectionTestUtils.setField(tracker, "windowSeconds", windowSeconds);
+        return tracker;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.info.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeywordClassifierTest {
+
+    private KeywordClassifier classifier;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        classifier = new KeywordClassifier(new DefaultResourceLoader(), new ObjectMapper());
+        ReflectionTestUtils.setField(classifier, "rulesLocation", "classpath:keyword-rules.json");
+        classifier.init();
+    }
+
+    @Test
+    void earliestMatchingRuleWins() {
+        assertEquals("ARCHITECTURE", label(KeywordClassifier.DIAGRAM_TYPE, "Order processing system"));
+        assertEquals("FLOWCHART", label(KeywordClassifier.DIAGRAM_TYPE, "Approval WORKFLOW for invoices"));
+        assertEquals("TIMELINE", label(KeywordClassifier.DIAGRAM_TYPE, "History of the web"));
+        assertEquals("MERMAID", label(KeywordClassifier.DIAGRAM_TYPE, "Cats and dogs"));
+        assertEquals("sequence", label(KeywordClassifier.MERMAID_TEMPLATE, "login interaction"));
+    }
+
+    @Test
+    void keywordsOnlyMatchAtWordStart() {
+        assertEquals("ai", label(KeywordClassifier.TOPIC_DOMAIN, "AI-driven search"));
+        assertEquals("ai", label(KeywordClassifier.TOPIC_DOMAIN, "Artificial Intelligence in medicine"));
+        assertEquals("general", label(KeywordClassifier.TOPIC_DOMAIN, "Email marketing"));
+        assertEquals("cloud", label(KeywordClassifier.TOPIC_DOMAIN, "Cloud-native databases"));
+    }
+
+    @Test
+    void listsAreSharedAndFilledFromTheDefault() {
+        KeywordClassifier.Rule ai = classifier.classify(KeywordClassifier.TOPIC_DOMAIN, "generative models");
+        assertSame(ai.list("diagramIdeas", "x"), ai.list("diagramIdeas", "y"));
+
+        // cloud has no insights of its own
+        KeywordClassifier.Rule cloud = classifier.classify(KeywordClassifier.TOPIC_DOMAIN, "cloud costs");
+        assertEquals("cloud costs is rapidly transforming multiple industries worldwide",
+                cloud.list("keyInsights", "cloud costs").get(0));
+    }
+
+    @Test
+    void unknownLabelsFailAtStartup(@TempDir Path dir) throws Exception {
+        Path rules = dir.resolve("rules.json");
+        Files.writeString(rules, """
+                {"categories": {
+                  "diagram-type": {"default": {"label": "MERMAID"},
+                                   "rules": [{"label": "GANTT", "keywords": ["schedule"]}]},
+                  "mermaid-template": {"default": {"label": "flowchart"}, "rules": []},
+                  "topic-domain": {"default": {"label": "general"}, "rules": []}
+                }}
+                """);
+        KeywordClassifier broken = new KeywordClassifier(new DefaultResourceLoader(), new ObjectMapper());
+        ReflectionTestUtils.setField(broken, "rulesLocation", rules.toUri().toString());
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, broken::init);
+        assertTrue(error.getMessage().contains("GANTT"));
+    }
+
+    private String label(String category, String text) {
+        return classifier.classify(category, text).label();
+    }
+}
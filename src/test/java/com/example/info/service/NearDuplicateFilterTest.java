@@ -0,0 +1,46 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearDuplicateFilterTest {
+
+    private static final String ARTICLE = "Rust guarantees memory safety without a garbage collector by "
+            + "tracking ownership and borrowing at compile time. Every value has a single owner, and the "
+            + "value is dropped when its owner goes out of scope. References must never outlive the data "
+            + "they point to, which the borrow checker verifies before the program ever runs.";
+
+    @Test
+    void signaturesEstimateShingleSimilarity() {
+        int[] original = NearDuplicateFilter.signature(ARTICLE);
+        assertEquals(1.0, NearDuplicateFilter.similarity(original, NearDuplicateFilter.signature(ARTICLE.toUpperCase())));
+
+        int[] edited = NearDuplicateFilter.signature(ARTICLE.replace("compile time", "build time"));
+        assertTrue(NearDuplicateFilter.similarity(original, edited) > 0.7);
+
+        int[] unrelated = NearDuplicateFilter.signature("Sourdough needs a lively starter, a long cold "
+                + "ferment in the fridge and a very hot oven to develop its open crumb and crisp crust.");
+        assertTrue(NearDuplicateFilter.similarity(original, unrelated) < 0.1);
+    }
+
+    @Test
+    void keepsTheFirstOfEachGroupOfNearDuplicates() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "similarityThreshold", 0.8);
+        String mirror = ARTICLE + " Share this article.";
+        String other = "Go relies on a concurrent garbage collector instead, trading a little throughput "
+                + "for simple memory management and short pauses.";
+
+        NearDuplicateFilter.DedupResult result = filter.filter(List.of(ARTICLE, other, mirror));
+
+        assertEquals(List.of(ARTICLE, other), result.getPages());
+        assertEquals(1, result.getPagesRemoved());
+        assertEquals(mirror.length(), result.getBytesSaved());
+    }
+}
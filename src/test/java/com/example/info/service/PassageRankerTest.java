@@ -0,0 +1,52 @@
+package com.example.info.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PassageRankerTest {
+
+    @Test
+    void keepsOnlyTheRelevantPassagesInPageOrder() {
+        // Passages close at the first sentence end after six words, so each sentence is one passage
+        PassageRanker ranker = newRanker(6);
+        String page = "Cookie banners and newsletter signup forms are everywhere. "
+                + "Solar panels convert sunlight into electricity using photovoltaic cells. "
+                + "Our partners may use tracking for advertising purposes. "
+                + "Solar panels still produce power on cloudy days.";
+
+        List<String> selected = ranker.selectPassages("solar panels", List.of(page), 2);
+
+        assertEquals(List.of("Solar panels convert sunlight into electricity using photovoltaic cells. "
+                + "Solar panels still produce power on cloudy days."), selected);
+    }
+
+    @Test
+    void dropsPagesWithNothingRelevant() {
+        PassageRanker ranker = newRanker(20);
+        List<String> pages = List.of(
+                "Heat pumps move heat rather than generating it.",
+                "Rooftop solar panels pay for themselves within a decade in sunny regions.");
+
+        assertEquals(List.of(pages.get(1)), ranker.selectPassages("solar panels", pages, 10));
+    }
+
+    @Test
+    void returnsThePagesUnchangedWhenTheTopicMatchesNothing() {
+        PassageRanker ranker = newRanker(20);
+        List<String> pages = List.of("Heat pumps move heat rather than generating it.");
+
+        assertSame(pages, ranker.selectPassages("the what and why", pages, 10));
+    }
+
+    private static PassageRanker newRanker(int passageWords) {
+        PassageRanker ranker = new PassageRanker();
+        ReflectionTestUtils.setField(ranker, "passageWords", passageWords);
+        ReflectionTestUtils.setField(ranker, "maxPassages", 30);
+        return ranker;
+    }
+}
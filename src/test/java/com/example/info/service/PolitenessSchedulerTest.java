@@ -0,0 +1,61 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolitenessSchedulerTest {
+
+    @Test
+    void allowsABurstThenSpacesRequestsOut() throws Exception {
+        PolitenessScheduler scheduler = newScheduler(10, 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(scheduler.acquire("example.com", deadlineIn(10)));
+        }
+        // The fourth slot is ~100ms away, past this deadline, and is not consumed
+        assertFalse(scheduler.acquire("example.com", deadlineIn(10)));
+
+        long start = System.nanoTime();
+        assertTrue(scheduler.acquire("example.com", deadlineIn(1000)));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    void retryAfterBlocksTheDomainUntilItPasses() throws Exception {
+        PolitenessScheduler scheduler = newScheduler(10, 3);
+        scheduler.backOff("example.com", "30");
+
+        assertFalse(scheduler.acquire("example.com", deadlineIn(1000)));
+        assertTrue(scheduler.acquire("example.org", deadlineIn(10)));
+    }
+
+    @Test
+    void parsesBothRetryAfterForms() {
+        assertEquals(Duration.ofSeconds(120), PolitenessScheduler.parseRetryAfter(" 120 "));
+        assertEquals(Duration.ZERO, PolitenessScheduler.parseRetryAfter("-5"));
+        assertEquals(Duration.ZERO, PolitenessScheduler.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertNull(PolitenessScheduler.parseRetryAfter("soon"));
+        assertNull(PolitenessScheduler.parseRetryAfter(null));
+    }
+
+    private static PolitenessScheduler newScheduler(double requestsPerSecond, int burst) {
+        PolitenessScheduler scheduler = new PolitenessScheduler(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "requestsPerSecond", requestsPerSecond);
+        ReflectionTestUtils.setField(scheduler, "burst", burst);
+        ReflectionTestUtils.setField(scheduler, "maxTaggedDomains", 20);
+        ReflectionTestUtils.setField(scheduler, "idleMinutes", 10L);
+        return scheduler;
+    }
+
+    private static long deadlineIn(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.info.service;
+
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadabilityContentExtractorTest {
+
+    private final ReadabilityContentExtractor extractor = new ReadabilityContentExtractor();
+
+    @Test
+    void keepsTheArticleAndDropsTheBoilerplate() {
+        String paragraph = "<p>Photovoltaic cells turn sunlight into electricity, and modern panels reach "
+                + "efficiencies above twenty percent, which makes rooftop systems pay back within years.</p>";
+        String html = "<html><body>"
+                + "<nav><a href='/'>Home</a> <a href='/news'>News</a></nav>"
+                + "<div class='cookie-banner'><p>We use cookies to improve your experience, see our policy, "
+                + "settings, partners and vendors for details.</p></div>"
+                + "<div class='article-content'>" + paragraph.repeat(4) + "</div>"
+                + "<div class='related-links'><p><a href='/a'>Wind power explained in more detail here</a></p></div>"
+                + "<footer><p>Copyright 2024, all rights reserved, terms and conditions apply.</p></footer>"
+                + "</body></html>";
+
+        String text = extractor.extract(Jsoup.parse(html));
+
+        assertTrue(text.contains("Photovoltaic cells turn sunlight into electricity"));
+        assertFalse(text.contains("cookies"));
+        assertFalse(text.contains("Wind power"));
+        assertFalse(text.contains("Copyright"));
+        assertFalse(text.contains("Home"));
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.info.service;
+
+import com.example.info.model.ResearchQuery;
+import com.example.info.repository.ResearchQueryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer<String, String> coalescer =
+            new RequestCoalescer<>("test", Duration.ofSeconds(5), meterRegistry);
+
+    @Test
+    void concurrentCallersShareOneRun() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            callers.add(coalescer.submit("generative ai", () -> {
+                runs.incrementAndGet();
+                await(release);
+                return "result";
+            }));
+        }
+        release.countDown();
+
+        for (CompletableFuture<String> caller : callers) {
+            assertEquals("result", caller.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, runs.get());
+        assertEquals(1, meterRegistry.counter("test.executions").count());
+        assertEquals(19, meterRegistry.counter("test.coalesced").count());
+    }
+
+    @Test
+    void failuresReachEveryCaller() {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = coalescer.submit("topic", () -> {
+            await(release);
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<String> second = coalescer.submit("topic", () -> "unused");
+        release.countDown();
+
+        assertTrue(first.handle((value, error) -> error).join() instanceof IllegalStateException);
+        assertTrue(second.handle((value, error) -> error).join() instanceof IllegalStateException);
+        // Failures aren't kept: the next caller runs again
+        assertEquals("retried", coalescer.execute("topic", () -> "retried"));
+    }
+
+    @Test
+    void runIsCancelledOnlyWhenTheLastCallerLeaves() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+        CompletableFuture<String> first = coalescer.submit("topic", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "late";
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                throw new IllegalStateException(e);
+            } finally {
+                finished.countDown();
+            }
+        });
+        CompletableFuture<String> second = coalescer.submit("topic", () -> "unused");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        first.cancel(true);
+        assertFalse(finished.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(second.isDone());
+
+        second.cancel(true);
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.get());
+        assertEquals(1, meterRegistry.counter("test.cancelled").count());
+
+        // A new caller starts a fresh run instead of joining the cancelled one
+        assertEquals("fresh", coalescer.execute("topic", () -> "fresh"));
+        assertThrows(CancellationException.class, second::join);
+    }
+
+    @Test
+    void cancelledResearchRunPersistsNothing() throws Exception {
+        ResearchCorpusService corpusService = mock(ResearchCorpusService.class);
+        AiResponseGeneratorService generator = mock(AiResponseGeneratorService.class);
+        ResearchQueryRepository repository = mock(ResearchQueryRepository.class);
+        SemanticTopicCache topicCache = mock(SemanticTopicCache.class);
+        ResearchCorpusService.Corpus corpus = new ResearchCorpusService.Corpus(
+                List.of("https://example.com"), List.of("https://example.com"), List.of("page"), "synthesized");
+        when(corpusService.getCorpus(anyString(), any())).thenReturn(corpus);
+        when(topicCache.findSimilar(anyString(), anyString())).thenReturn(Optional.empty());
+
+        // Like a generator that turns the interrupted LLM call into its fallback response
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        when(generator.generateComprehensiveResponse(anyString(), eq(corpus))).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finished.countDown();
+            }
+            ResearchQuery fallback = new ResearchQuery();
+            fallback.setTopic("topic");
+            return fallback;
+        });
+
+        ResearchService service = new ResearchService(corpusService, generator, mock(LlmGateway.class),
+                repository, topicCache, meterRegistry);
+        ReflectionTestUtils.setField(service, "waitTimeoutMs", 10_000L);
+        service.init();
+
+        Thread caller = new Thread(() -> {
+            try {
+                service.conductResearch("topic");
+            } catch (RuntimeException expected) {
+                // The caller gave up
+            }
+        });
+        caller.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // The only caller stops waiting, which cancels the run
+        caller.interrupt();
+        caller.join(5_000);
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        verify(repository, never()).save(any());
+        verify(topicCache, never()).add(anyString(), anyString(), anyLong());
+        assertEquals(1, meterRegistry.counter("research.inflight.cancelled").count());
+        service.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
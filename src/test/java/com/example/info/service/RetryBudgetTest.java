@@ -0,0 +1,42 @@
+package com.example.info.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryBudgetTest {
+
+    @Test
+    void startsFullAndRunsOut() {
+        LlmGateway.RetryBudget budget = new LlmGateway.RetryBudget(0.25, 3);
+        assertTrue(budget.withdraw());
+        assertTrue(budget.withdraw());
+        assertTrue(budget.withdraw());
+        assertFalse(budget.withdraw());
+        assertEquals(0, budget.balance());
+    }
+
+    @Test
+    void eachCallEarnsAFractionOfARetry() {
+        LlmGateway.RetryBudget budget = new LlmGateway.RetryBudget(0.25, 1);
+        assertTrue(budget.withdraw());
+
+        for (int i = 0; i < 3; i++) {
+            budget.deposit();
+        }
+        assertFalse(budget.withdraw());
+        budget.deposit();
+        assertTrue(budget.withdraw());
+    }
+
+    @Test
+    void balanceIsCappedAtTheMaximum() {
+        LlmGateway.RetryBudget budget = new LlmGateway.RetryBudget(0.25, 2);
+        for (int i = 0; i < 100; i++) {
+            budget.deposit();
+        }
+        assertEquals(2, budget.balance());
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.info.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SemanticTopicCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsTopicsWithNearIdenticalWording() throws Exception {
+        SemanticTopicCache cache = newCache(0.7);
+        cache.add(SemanticTopicCache.RESEARCH, "Generative AI", 1L);
+        cache.add(SemanticTopicCache.RESEARCH, "Quantum computing", 2L);
+        cache.add(SemanticTopicCache.RESEARCH, "Rust memory safety", 3L);
+
+        assertEquals(Optional.of(1L), cache.findSimilar(SemanticTopicCache.RESEARCH, "generative AI overview"));
+        assertEquals(Optional.of(2L), cache.findSimilar(SemanticTopicCache.RESEARCH, "quantum computing?"));
+        assertTrue(cache.findSimilar(SemanticTopicCache.RESEARCH, "Medieval castle architecture").isEmpty());
+        // Namespaces don't share entries
+        assertTrue(cache.findSimilar(SemanticTopicCache.CONTENT, "Generative AI").isEmpty());
+    }
+
+    @Test
+    void distinctTopicsDoNotMatchAtTheConfiguredThreshold() throws Exception {
+        double threshold = Double.parseDouble(PropertiesLoaderUtils
+                .loadProperties(new ClassPathResource("application.properties"))
+                .getProperty("topic.cache.similarity.threshold"));
+        String[][] distinct = {
+                {"Java programming", "Python programming"},
+                {"Type 1 diabetes", "Type 2 diabetes"},
+                {"World War I", "World War II"},
+                {"iPhone 14", "iPhone 15"},
+                {"Machine learning", "Deep learning"},
+        };
+        SemanticTopicCache cache = newCache(threshold);
+        for (int i = 0; i < distinct.length; i++) {
+            cache.add(SemanticTopicCache.RESEARCH, distinct[i][0], (long) i);
+        }
+
+        for (String[] pair : distinct) {
+            assertTrue(cache.findSimilar(SemanticTopicCache.RESEARCH, pair[1]).isEmpty(),
+                    pair[1] + " must not reuse " + pair[0]);
+        }
+        assertEquals(Optional.of(0L), cache.findSimilar(SemanticTopicCache.RESEARCH, "java programming?"));
+    }
+
+    @Test
+    void slowEmbeddingFailsOpenAndPausesEmbedding() throws Exception {
+        SemanticTopicCache cache = newCache(0.7);
+        cache.add(SemanticTopicCache.RESEARCH, "Generative AI", 1L);
+        AtomicInteger calls = new AtomicInteger();
+        ReflectionTestUtils.setField(cache, "embedder", (TopicEmbedder) topic -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new float[256];
+        });
+
+        long start = System.nanoTime();
+        assertTrue(cache.findSimilar(SemanticTopicCache.RESEARCH, "Generative AI overview").isEmpty());
+        assertTrue(cache.findSimilar(SemanticTopicCache.RESEARCH, "Generative AI explained").isEmpty());
+        assertTrue(System.nanoTime() - start < 2_000_000_000L, "embedding timeout not applied");
+        // The second lookup is skipped during the cooldown instead of waiting out another timeout
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void indexingAfterAMissReusesTheLookupEmbedding() throws Exception {
+        SemanticTopicCache cache = newCache(0.7);
+        AtomicInteger calls = new AtomicInteger();
+        HashingTopicEmbedder hashing = new HashingTopicEmbedder(256);
+        ReflectionTestUtils.setField(cache, "embedder", (TopicEmbedder) topic -> {
+            calls.incrementAndGet();
+            return hashing.embed(topic);
+        });
+
+        assertTrue(cache.findSimilar(SemanticTopicCache.CONTENT, "Generative AI").isEmpty());
+        cache.add(SemanticTopicCache.CONTENT, "Generative AI", 1L);
+
+        assertEquals(1, calls.get());
+        // Sectioned articles live in their own namespace
+        assertTrue(cache.findSimilar(SemanticTopicCache.CONTENT_SECTIONED, "Generative AI").isEmpty());
+        assertEquals(Optional.of(1L), cache.findSimilar(SemanticTopicCache.CONTENT, "Generative AI"));
+    }
+
+    @Test
+    void removedEntriesAreNotReturned() throws Exception {
+        SemanticTopicCache cache = newCache(0.7);
+        cache.add(SemanticTopicCache.CONTENT, "Generative AI", 1L);
+        cache.remove(SemanticTopicCache.CONTENT, 1L);
+
+        assertTrue(cache.findSimilar(SemanticTopicCache.CONTENT, "Generative AI").isEmpty());
+    }
+
+    @Test
+    void indexSurvivesRestart() throws Exception {
+        SemanticTopicCache cache = newCache(0.7);
+        cache.add(SemanticTopicCache.RESEARCH, "Generative AI", 7L);
+        cache.close();
+        assertTrue(Files.exists(directory.resolve("research.hnsw")));
+
+        SemanticTopicCache reloaded = newCache(0.7);
+        assertEquals(Optional.of(7L), reloaded.findSimilar(SemanticTopicCache.RESEARCH, "generative ai"));
+    }
+
+    @Test
+    void hnswSearchAgreesWithExhaustiveSearch() {
+        HashingTopicEmbedder embedder = new HashingTopicEmbedder(64);
+        HnswIndex index = new HnswIndex(64, 8, 64);
+        float[][] vectors = new float[500][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = embedder.embed("topic " + i + " about subject " + (i * 7919 % 101));
+            index.add(vectors[i], i);
+        }
+
+        int agreed = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = embedder.embed("subject " + q + " topic " + (q * 31));
+            long expected = -1;
+            double best = -2;
+            for (int i = 0; i < vectors.length; i++) {
+                double similarity = cosine(query, vectors[i]);
+                if (similarity > best) {
+                    best = similarity;
+                    expected = i;
+                }
+            }
+            HnswIndex.Match match = index.search(query, 1, 64).get(0);
+            if (match.label() == expected || Math.abs(match.similarity() - best) < 1e-5) {
+                agreed++;
+            }
+        }
+        assertTrue(agreed >= 45, "recall@1 too low: " + agreed + "/50");
+    }
+
+    private SemanticTopicCache newCache(double threshold) throws Exception {
+        SemanticTopicCache cache = new SemanticTopicCache(
+                new StaticListableBeanFactory().getBeanProvider(EmbeddingModel.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "embedderName", "hashing");
+        ReflectionTestUtils.setField(cache, "hashingDimensions", 256);
+        ReflectionTestUtils.setField(cache, "similarityThreshold", threshold);
+        ReflectionTestUtils.setField(cache, "embedTimeoutMs", 200L);
+        ReflectionTestUtils.setField(cache, "embedCooldownSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "indexPath", directory.toString());
+        ReflectionTestUtils.setField(cache, "saveIntervalSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "m", 16);
+        ReflectionTestUtils.setField(cache, "efConstruction", 100);
+        ReflectionTestUtils.setField(cache, "efSearch", 50);
+        cache.init();
+        return cache;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.info.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SerpApiResponseParserTest {
+
+    private final SerpApiResponseParser parser = new SerpApiResponseParser();
+
+    @Test
+    void readsOrganicResultsAndMetadataAndSkipsEverythingElse() throws Exception {
+        SerpApiService.SerpApiResponse response = parser.parse("""
+                {"ads": [{"title": "Buy now", "link": "https://ads.example"}],
+                 "search_metadata": {"id": "x", "query_displayed": "solar", "total_results": "1200",
+                                     "time_taken_displayed": 0.42},
+                 "knowledge_graph": {"title": "Solar", "nested": {"a": [1, 2, 3]}},
+                 "organic_results": [
+                   {"position": 1, "title": "Solar power", "link": "https://a.example",
+                    "snippet": "About solar", "sitelinks": {"inline": [{"title": "More"}]}},
+                   "unexpected",
+                   {"title": "No position", "link": "https://b.example"}
+                 ]}
+                """);
+
+        List<SerpApiService.SearchResult> results = response.getResults();
+        assertEquals(2, results.size());
+        assertEquals("Solar power", results.get(0).getTitle());
+        assertEquals("https://a.example", results.get(0).getLink());
+        assertEquals("About solar", results.get(0).getSnippet());
+        assertEquals("https://b.example", results.get(1).getLink());
+        assertEquals("", results.get(1).getSnippet());
+        assertEquals(2, results.get(1).getPosition());
+
+        assertEquals("solar", response.getSearchMetadata().getQueryDisplayed());
+        assertEquals("1200", response.getSearchMetadata().getTotalResults());
+        assertEquals(0.42, response.getSearchMetadata().getTimeTaken());
+    }
+
+    @Test
+    void rejectsNonObjectResponses() {
+        assertThrows(Exception.class, () -> parser.parse("[1, 2]"));
+    }
+}
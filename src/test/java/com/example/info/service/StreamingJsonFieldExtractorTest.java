@@ -0,0 +1,45 @@
+package com.example.info.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingJsonFieldExtractorTest {
+
+    @Test
+    void returnsEachFieldAsSoonAsItsValueIsComplete() {
+        StreamingJsonFieldExtractor extractor = new StreamingJsonFieldExtractor();
+
+        assertEquals(List.of(), extractor.feed("```json\n{\"title\": \"Sol"));
+        assertEquals(List.of(new StreamingJsonFieldExtractor.Field("title", "Solar power")),
+                extractor.feed("ar power\", \"keyPoints\": [\"cheap\", "));
+        assertEquals(List.of(new StreamingJsonFieldExtractor.Field("keyPoints", List.of("cheap", "clean"))),
+                extractor.feed("\"clean\"], \"summary\""));
+        assertFalse(extractor.isComplete());
+
+        assertEquals(List.of(new StreamingJsonFieldExtractor.Field("summary", "Sunlight, converted.")),
+                extractor.feed(": \"Sunlight, converted.\"}\n```"));
+        assertTrue(extractor.isComplete());
+        assertEquals("Solar power", extractor.fields().get("title"));
+    }
+
+    @Test
+    void splitsAnywhereIncludingInsideEscapesAndMultibyteCharacters() {
+        String json = "{\"title\": \"Café \\\"culture\\\"\", \"relatedTopics\": [\"Espresso\", \"Crème\"]}";
+        for (int split = 1; split < json.length(); split++) {
+            StreamingJsonFieldExtractor extractor = new StreamingJsonFieldExtractor();
+            List<StreamingJsonFieldExtractor.Field> fields = new ArrayList<>(extractor.feed(json.substring(0, split)));
+            fields.addAll(extractor.feed(json.substring(split)));
+
+            assertEquals(List.of(
+                    new StreamingJsonFieldExtractor.Field("title", "Café \"culture\""),
+                    new StreamingJsonFieldExtractor.Field("relatedTopics", List.of("Espresso", "Crème"))),
+                    fields, "split at " + split);
+        }
+    }
+}